@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone;
+
+import static it.cnr.istc.pst.semitone.sat.LBool.Undefined;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import it.cnr.istc.pst.semitone.sat.Lit;
+import it.cnr.istc.pst.semitone.sat.Sat;
+
+/**
+ * The entry point of the benchmarks. Accepts the usual JMH command line
+ * options and always attaches the GC profiler, so that each result reports
+ * the allocation rate and the bytes allocated per operation.
+ *
+ * @author Riccardo De Benedictis
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build())
+                .run();
+    }
+
+    /**
+     * Greedily selects, among the given candidates, a sequence of decisions
+     * which can be assumed, in order, without conflicts. Each candidate is
+     * tried with both polarities and is skipped if already assigned by the
+     * previous decisions. The network is brought back to root level.
+     *
+     * @param sat the network at root level.
+     * @param candidates the literals to be tried as decisions.
+     * @return a conflict-free sequence of decisions.
+     */
+    public static Lit[] decisions(final Sat sat, final Lit... candidates) {
+        assert sat.rootLevel();
+        final List<Lit> ds = new ArrayList<>();
+        for (Lit l : candidates) {
+            if (sat.value(l) == Undefined) {
+                final Lit d = sat.check(l) ? l : sat.check(l.not()) ? l.not() : null;
+                if (d == null) { // a failed literal: every further decision would be useless..
+                    break;
+                }
+                boolean ch = sat.assume(d) && sat.check();
+                assert ch;
+                ds.add(d);
+            }
+        }
+        while (!sat.rootLevel()) {
+            sat.pop();
+        }
+        return ds.toArray(new Lit[ds.size()]);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.dl;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.cnr.istc.pst.semitone.Benchmarks;
+import it.cnr.istc.pst.semitone.lra.Lin;
+import it.cnr.istc.pst.semitone.lra.Rational;
+import it.cnr.istc.pst.semitone.sat.Lit;
+import it.cnr.istc.pst.semitone.sat.Sat;
+
+/**
+ * Measures the {@link DLTheory} on random difference constraints. Each
+ * operation asserts, one after the other, a feasible sequence of random
+ * constraints of the form {@code x - y <= c}, propagating after each of them,
+ * and then backtracks to root level.
+ *
+ * @author Riccardo De Benedictis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DLTheoryBenchmark {
+
+    @Param({ "10", "40" })
+    public int n_vars;
+    @Param({ "4" })
+    public int cnstrs_per_var;
+    @Param({ "42" })
+    public long seed;
+    private Sat sat;
+    private Lit[] decisions;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom rnd = new SplittableRandom(seed);
+        sat = new Sat();
+        final DLTheory dl = new DLTheory(sat);
+        final int[] vars = new int[n_vars];
+        for (int i = 0; i < n_vars; i++) {
+            vars[i] = dl.newVar();
+        }
+        final Lit[] candidates = new Lit[n_vars * cnstrs_per_var];
+        for (int i = 0; i < candidates.length; i++) {
+            final int x = vars[rnd.nextInt(n_vars)];
+            int y = vars[rnd.nextInt(n_vars)];
+            while (y == x) {
+                y = vars[rnd.nextInt(n_vars)];
+            }
+            final Lin r = new Lin(y).plus(new Lin(new Rational(rnd.nextInt(-20, 21))));
+            candidates[i] = new Lit(dl.newLEq(new Lin(x), r));
+        }
+        decisions = Benchmarks.decisions(sat, candidates);
+    }
+
+    @Benchmark
+    public boolean check() {
+        return sat.check(decisions);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.lra;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.cnr.istc.pst.semitone.Benchmarks;
+import it.cnr.istc.pst.semitone.sat.Lit;
+import it.cnr.istc.pst.semitone.sat.Sat;
+
+/**
+ * Measures the simplex of the {@link LRATheory} on random tableaux. Each
+ * operation asserts, one after the other, a feasible sequence of random
+ * constraints, checking (and hence pivoting) after each of them, and then
+ * backtracks to root level. Notice that backtracking restores the bounds but
+ * not the assignment, so that subsequent operations start from the last
+ * feasible assignment, as it happens within a search.
+ *
+ * @author Riccardo De Benedictis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LRATheoryBenchmark {
+
+    @Param({ "50", "150" })
+    public int n_vars;
+    @Param({ "2" })
+    public int cnstrs_per_var;
+    @Param({ "2" })
+    public int vars_per_cnstr;
+    @Param({ "Bland" })
+    public LRATheory.RowRule row_rule;
+    @Param({ "Bland" })
+    public LRATheory.ColumnRule column_rule;
+    @Param({ "-1" })
+    public int bland_threshold;
+    @Param({ "42" })
+    public long seed;
+    private Sat sat;
+    private Lit[] decisions;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom rnd = new SplittableRandom(seed);
+        sat = new Sat();
+        final LRATheory lra = new LRATheory(sat);
+        lra.setPivotRules(row_rule, column_rule, bland_threshold);
+        final int[] vars = new int[n_vars];
+        for (int i = 0; i < n_vars; i++) {
+            vars[i] = lra.newVar();
+        }
+        final Lit[] candidates = new Lit[n_vars * cnstrs_per_var];
+        for (int i = 0; i < candidates.length; i++) {
+            final Lin l = new Lin();
+            for (int j = 0; j < vars_per_cnstr; j++) {
+                long c = rnd.nextInt(-5, 6);
+                l.add(vars[rnd.nextInt(n_vars)], new Rational(c == 0 ? 1 : c));
+            }
+            final Lin r = new Lin(new Rational(rnd.nextInt(-20, 21)));
+            candidates[i] = new Lit(rnd.nextBoolean() ? lra.newLEq(l, r) : lra.newGEq(l, r));
+        }
+        decisions = Benchmarks.decisions(sat, candidates);
+    }
+
+    @Benchmark
+    public boolean check() {
+        return sat.check(decisions);
+    }
+}
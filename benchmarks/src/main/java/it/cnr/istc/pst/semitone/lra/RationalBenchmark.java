@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.lra;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the {@link Rational} arithmetic on random operands whose
+ * numerators and denominators are bounded by {@code max}. Allocating
+ * operations ({@code plus}, {@code times}, ..) are measured against their
+ * in-place counterparts ({@code add}, {@code mult}, ..), the latter
+ * overwriting a single accumulator. The largest bound makes most of the
+ * operations overflow {@code long}s, hence measures the {@code BigInteger}
+ * fallback.
+ *
+ * @author Riccardo De Benedictis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RationalBenchmark {
+
+    private static final int N_OPERANDS = 1024;
+    @Param({ "1", "16", "4096", "1099511627776" })
+    public long max;
+    @Param({ "42" })
+    public long seed;
+    private final Rational[] lhs = new Rational[N_OPERANDS];
+    private final Rational[] rhs = new Rational[N_OPERANDS];
+    private final Rational acc = new Rational();
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom rnd = new SplittableRandom(seed);
+        for (int i = 0; i < N_OPERANDS; i++) {
+            lhs[i] = new Rational(rnd.nextLong(-max, max + 1), rnd.nextLong(max) + 1);
+            long n = rnd.nextLong(-max, max + 1);
+            rhs[i] = new Rational(n == 0 ? 1 : n, rnd.nextLong(max) + 1); // we avoid divisions by zero..
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_OPERANDS)
+    public void plus(final Blackhole bh) {
+        for (int i = 0; i < N_OPERANDS; i++) {
+            bh.consume(lhs[i].plus(rhs[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_OPERANDS)
+    public void times(final Blackhole bh) {
+        for (int i = 0; i < N_OPERANDS; i++) {
+            bh.consume(lhs[i].times(rhs[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_OPERANDS)
+    public void divide(final Blackhole bh) {
+        for (int i = 0; i < N_OPERANDS; i++) {
+            bh.consume(lhs[i].divide(rhs[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_OPERANDS)
+    public void add(final Blackhole bh) {
+        for (int i = 0; i < N_OPERANDS; i++) {
+            acc.set(lhs[i]);
+            acc.add(rhs[i]);
+            bh.consume(acc.num);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_OPERANDS)
+    public void mult(final Blackhole bh) {
+        for (int i = 0; i < N_OPERANDS; i++) {
+            acc.set(lhs[i]);
+            acc.mult(rhs[i]);
+            bh.consume(acc.num);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(N_OPERANDS)
+    public void compare(final Blackhole bh) {
+        for (int i = 0; i < N_OPERANDS; i++) {
+            bh.consume(lhs[i].lt(rhs[i]));
+        }
+    }
+}
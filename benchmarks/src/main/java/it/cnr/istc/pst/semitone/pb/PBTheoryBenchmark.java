@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.pb;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.cnr.istc.pst.semitone.Benchmarks;
+import it.cnr.istc.pst.semitone.lra.Lin;
+import it.cnr.istc.pst.semitone.lra.Rational;
+import it.cnr.istc.pst.semitone.sat.Lit;
+import it.cnr.istc.pst.semitone.sat.Sat;
+
+/**
+ * Measures the bound propagation of the {@link PBTheory} on random
+ * knapsack-like constraints, enforced at root level. Each operation assumes,
+ * one after the other, a conflict-free sequence of decisions on the
+ * propositional variables, propagating after each of them, and then
+ * backtracks to root level.
+ *
+ * @author Riccardo De Benedictis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PBTheoryBenchmark {
+
+    @Param({ "50", "200" })
+    public int n_vars;
+    @Param({ "1" })
+    public int cnstrs_per_var;
+    @Param({ "8" })
+    public int vars_per_cnstr;
+    @Param({ "42" })
+    public long seed;
+    private Sat sat;
+    private Lit[] decisions;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom rnd = new SplittableRandom(seed);
+        sat = new Sat();
+        final PBTheory pb = new PBTheory(sat);
+        final int[] vars = new int[n_vars];
+        for (int i = 0; i < n_vars; i++) {
+            vars[i] = sat.newVar();
+        }
+        for (int i = 0; i < n_vars * cnstrs_per_var; i++) {
+            final Lin l = new Lin();
+            long sum = 0;
+            for (int j = 0; j < vars_per_cnstr; j++) {
+                final long c = rnd.nextInt(1, 11);
+                l.add(vars[rnd.nextInt(n_vars)], new Rational(c));
+                sum += c;
+            }
+            // at most half of the weight can be selected..
+            final int ctr = pb.newLEq(l, new Lin(new Rational(sum / 2)));
+            if (!sat.newClause(new Lit(ctr))) {
+                throw new IllegalStateException("inconsistent constraints");
+            }
+        }
+        final Lit[] candidates = new Lit[n_vars];
+        for (int i = 0; i < n_vars; i++) {
+            candidates[i] = new Lit(vars[i], rnd.nextBoolean());
+        }
+        decisions = Benchmarks.decisions(sat, candidates);
+    }
+
+    @Benchmark
+    public boolean propagate() {
+        return sat.check(decisions);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.sat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.cnr.istc.pst.semitone.Benchmarks;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Measures unit propagation within the {@link Sat} network. Each operation
+ * assumes, one after the other, a conflict-free sequence of decisions covering
+ * the whole formula, propagating after each of them, and then backtracks to
+ * root level.
+ *
+ * @author Riccardo De Benedictis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SatBenchmark {
+
+    @Param({ "random-3sat", "planning" })
+    public String cnf;
+    @Param({ "200", "2000" })
+    public int n_vars;
+    @Param({ "42" })
+    public long seed;
+    private Sat sat;
+    private Lit[] decisions;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom rnd = new SplittableRandom(seed);
+        sat = new Sat();
+        final List<int[]> clauses = cnf.equals("planning") ? planning(rnd, n_vars) : random3SAT(rnd, n_vars);
+        final int[] vars = new int[n_vars + 1];
+        for (int i = 1; i <= n_vars; i++) {
+            vars[i] = sat.newVar();
+        }
+        for (int[] clause : clauses) {
+            final Lit[] lits = new Lit[clause.length];
+            for (int i = 0; i < clause.length; i++) {
+                lits[i] = new Lit(vars[Math.abs(clause[i])], clause[i] > 0);
+            }
+            sat.newClause(lits);
+        }
+        final Lit[] candidates = new Lit[n_vars];
+        for (int i = 0; i < n_vars; i++) {
+            candidates[i] = new Lit(vars[i + 1], rnd.nextBoolean());
+        }
+        decisions = Benchmarks.decisions(sat, candidates);
+    }
+
+    @Benchmark
+    public boolean propagate() {
+        return sat.check(decisions);
+    }
+
+    /**
+     * Generates a random 3-SAT formula, in DIMACS notation, at the
+     * satisfiability threshold.
+     */
+    static List<int[]> random3SAT(final SplittableRandom rnd, final int n_vars) {
+        final int n_clauses = (int) (n_vars * 4.26);
+        final List<int[]> clauses = new ArrayList<>(n_clauses);
+        for (int i = 0; i < n_clauses; i++) {
+            final int[] clause = new int[3];
+            for (int j = 0; j < clause.length; j++) {
+                clause[j] = rnd.nextBoolean() ? rnd.nextInt(n_vars) + 1 : -(rnd.nextInt(n_vars) + 1);
+            }
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+
+    /**
+     * Generates, in DIMACS notation, the encoding of a random planning problem
+     * into a fixed number of steps, having as many fluents as actions. Each
+     * action requires two fluents, adds two fluents and deletes one. Besides
+     * preconditions and effects, the encoding contains explanatory frame
+     * axioms, pairwise mutual exclusions among the actions of each step and
+     * the initial state.
+     */
+    static List<int[]> planning(final SplittableRandom rnd, final int n_vars) {
+        final int n_steps = 10;
+        final int n_fluents = Math.max(2, n_vars / (n_steps * 3 + 1));
+        final int n_actions = n_fluents * 2;
+        final int[][] pre = new int[n_actions][2], add = new int[n_actions][2], del = new int[n_actions][1];
+        for (int a = 0; a < n_actions; a++) {
+            for (int[] fs : new int[][] { pre[a], add[a], del[a] }) {
+                for (int i = 0; i < fs.length; i++) {
+                    fs[i] = rnd.nextInt(n_fluents);
+                }
+            }
+        }
+        // fluent 'f' at step 't' is 't * (n_fluents + n_actions) + f + 1', the actions follow the fluents..
+        final int step_size = n_fluents + n_actions;
+        final List<int[]> clauses = new ArrayList<>();
+        for (int f = 0; f < n_fluents; f++) {
+            clauses.add(new int[] { rnd.nextBoolean() ? f + 1 : -(f + 1) });
+        }
+        for (int t = 0; t < n_steps; t++) {
+            final int fs = t * step_size + 1, as = fs + n_fluents, next_fs = fs + step_size;
+            for (int a = 0; a < n_actions; a++) {
+                for (int f : pre[a]) {
+                    clauses.add(new int[] { -(as + a), fs + f });
+                }
+                for (int f : add[a]) {
+                    clauses.add(new int[] { -(as + a), next_fs + f });
+                }
+                for (int f : del[a]) {
+                    clauses.add(new int[] { -(as + a), -(next_fs + f) });
+                }
+                for (int b = a + 1; b < n_actions; b++) {
+                    clauses.add(new int[] { -(as + a), -(as + b) });
+                }
+            }
+            for (int f = 0; f < n_fluents; f++) {
+                final IntArrayList adders = new IntArrayList(), deleters = new IntArrayList();
+                for (int a = 0; a < n_actions; a++) {
+                    for (int af : add[a]) {
+                        if (af == f) {
+                            adders.add(as + a);
+                        }
+                    }
+                    for (int df : del[a]) {
+                        if (df == f) {
+                            deleters.add(as + a);
+                        }
+                    }
+                }
+                // a fluent becomes true only if some action adds it..
+                adders.add(0, -(next_fs + f));
+                adders.add(0, fs + f);
+                clauses.add(adders.toIntArray());
+                // a fluent becomes false only if some action deletes it..
+                deleters.add(0, next_fs + f);
+                deleters.add(0, -(fs + f));
+                clauses.add(deleters.toIntArray());
+            }
+        }
+        return clauses;
+    }
+}
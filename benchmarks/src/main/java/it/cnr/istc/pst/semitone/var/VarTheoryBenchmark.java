@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.var;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.cnr.istc.pst.semitone.sat.Sat;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Measures the creation of equality constraints among the object variables of
+ * the {@link VarTheory}. Each operation creates a fresh network with
+ * {@code n_vars} object variables, having random subsets of {@code n_vals}
+ * values as domains, and then an equality constraint for each pair of them.
+ * Creating again an already existing equality is measured separately.
+ *
+ * @author Riccardo De Benedictis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VarTheoryBenchmark {
+
+    @Param({ "20" })
+    public int n_vars;
+    @Param({ "4", "32" })
+    public int n_vals;
+    @Param({ "42" })
+    public long seed;
+    private List<Set<Object>> domains;
+    private VarTheory vt;
+    private int[] vars;
+
+    @Setup
+    public void setUp() {
+        final SplittableRandom rnd = new SplittableRandom(seed);
+        domains = new ArrayList<>(n_vars);
+        for (int i = 0; i < n_vars; i++) {
+            final Set<Object> domain = new ObjectOpenHashSet<>();
+            while (domain.size() < Math.max(1, n_vals / 2)) {
+                domain.add("v" + rnd.nextInt(n_vals));
+            }
+            domains.add(domain);
+        }
+        vt = new VarTheory(new Sat());
+        vars = newVars(vt);
+        newEqs(vt, vars, null);
+    }
+
+    @Benchmark
+    public void newEq(final Blackhole bh) {
+        final VarTheory c_vt = new VarTheory(new Sat());
+        newEqs(c_vt, newVars(c_vt), bh);
+    }
+
+    @Benchmark
+    public void existingEq(final Blackhole bh) {
+        newEqs(vt, vars, bh);
+    }
+
+    private int[] newVars(final VarTheory c_vt) {
+        final int[] c_vars = new int[n_vars];
+        for (int i = 0; i < n_vars; i++) {
+            c_vars[i] = c_vt.newVar(domains.get(i));
+        }
+        return c_vars;
+    }
+
+    private static void newEqs(final VarTheory c_vt, final int[] c_vars, final Blackhole bh) {
+        for (int i = 0; i < c_vars.length; i++) {
+            for (int j = i + 1; j < c_vars.length; j++) {
+                final int eq = c_vt.newEq(c_vars[i], c_vars[j]);
+                if (bh != null) {
+                    bh.consume(eq);
+                }
+            }
+        }
+    }
+}
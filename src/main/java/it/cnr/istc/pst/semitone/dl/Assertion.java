@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.dl;
+
+import it.cnr.istc.pst.semitone.lra.InfRational;
+import it.cnr.istc.pst.semitone.lra.Rational;
+import it.cnr.istc.pst.semitone.sat.Lit;
+
+/**
+ * This class is used for representing assertions of the difference logic
+ * (DL) theory, i.e. constraints of the form {@code to - from <= dist}. Each
+ * assertion corresponds to two edges of the constraint graph: the one
+ * enforced when the assertion is true and the one enforced when the
+ * assertion is false (i.e., {@code from - to <= -dist - epsilon}).
+ *
+ * @author Riccardo De Benedictis
+ */
+class Assertion {
+
+    private static final InfRational EPSILON = new InfRational(new Rational(), new Rational(1));
+    final int b; // the controlling (propositional) variable..
+    final DLTheory.Edge pos; // the edge enforced when the assertion is true..
+    final DLTheory.Edge neg; // the edge enforced when the assertion is false..
+
+    Assertion(final int b, final int from, final int to, final InfRational dist) {
+        this.b = b;
+        this.pos = new DLTheory.Edge(from, to, dist, new Lit(b));
+        final InfRational neg_dist = new InfRational(dist);
+        neg_dist.negate();
+        neg_dist.sub(EPSILON);
+        this.neg = new DLTheory.Edge(to, from, neg_dist, new Lit(b, false));
+    }
+
+    @Override
+    public String toString() {
+        return "[b" + b + "] x" + pos.to + " - x" + pos.from + " <= " + pos.dist.toString();
+    }
+}
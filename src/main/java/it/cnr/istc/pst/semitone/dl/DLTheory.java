@@ -0,0 +1,510 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.dl;
+
+import static it.cnr.istc.pst.semitone.sat.Sat.FALSE_var;
+import static it.cnr.istc.pst.semitone.sat.Sat.TRUE_var;
+
+import java.util.List;
+
+import it.cnr.istc.pst.semitone.lra.InfRational;
+import it.cnr.istc.pst.semitone.lra.Lin;
+import it.cnr.istc.pst.semitone.lra.Rational;
+import it.cnr.istc.pst.semitone.sat.Lit;
+import it.cnr.istc.pst.semitone.sat.Sat;
+import it.cnr.istc.pst.semitone.sat.Theory;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * This class implements the difference logic (DL) theory, i.e. conjunctions
+ * of constraints of the form {@code x - y <= c}, as they arise, for example,
+ * within simple temporal networks. Each enforced constraint is an edge
+ * {@code y -> x}, weighted {@code c}, of a constraint graph which is
+ * consistent if, and only if, it contains no negative cycle.
+ * <p>
+ * A solution of the enforced constraints (i.e., a value for each variable)
+ * is maintained incrementally: when a new edge is violated by the current
+ * solution, the values of the affected variables are repaired by a
+ * Dijkstra-like visit, guided by the reduced costs of the edges, which either
+ * succeeds or finds a negative cycle, whose edges explain the inconsistency.
+ * Since removing edges cannot make a solution infeasible, backtracking just
+ * removes the edges enforced within the popped levels. Constraints on the
+ * same pair of variables are, moreover, propagated to each other.
+ * <p>
+ * Variable {@code 0} is the origin, whose value is always zero, so that
+ * constraints of the form {@code x <= c} are represented as
+ * {@code x - origin <= c}. Constraints whose variables share the same
+ * coefficient, up to the sign (e.g., {@code 2x - 2y <= 4}), are normalized,
+ * while any other linear constraint is rejected.
+ *
+ * @author Riccardo De Benedictis
+ */
+public class DLTheory implements Theory {
+
+    private static final int DEFAULT_INIT_SIZE = 16;
+    private static final int ORIGIN = 0;
+    private final Sat sat;
+    private int n_vars = 0;
+    private InfRational[] vals = new InfRational[DEFAULT_INIT_SIZE]; // the current values, satisfying the enforced constraints..
+    private EdgeList[] out = new EdgeList[DEFAULT_INIT_SIZE]; // for each variable 'v', the enforced edges leaving 'v'..
+    private final Int2ObjectMap<Assertion> v_asrts = new Int2ObjectOpenHashMap<>(); // the assertions (propositional variable to assertion) used for enforcing (negating) assertions..
+    private final Long2ObjectMap<AssertionList> pairs = new Long2ObjectOpenHashMap<>(); // for each pair of variables 'from' and 'to', the assertions on 'to - from'..
+    private final ObjectArrayList<Edge> trail = new ObjectArrayList<>(); // the edges enforced below the root level, in chronological order..
+    private final IntArrayList trail_lim = new IntArrayList(); // for each decision level, the size of the trail at its beginning..
+    private InfRational[] gamma = new InfRational[DEFAULT_INIT_SIZE]; // for each variable, the (negative) change of its value found so far by the repairing visit..
+    private Edge[] pred = new Edge[DEFAULT_INIT_SIZE]; // for each variable, the edge through which its change has been found..
+    private int[] heap = new int[DEFAULT_INIT_SIZE]; // the variables to be visited, sorted by their change..
+    private int heap_size = 0; // the number of variables to be visited..
+    private int[] heap_pos = new int[DEFAULT_INIT_SIZE]; // for each variable, its position within the heap or -1 if not in the heap..
+    private final IntArrayList visited = new IntArrayList(); // the variables visited by the repairing visit..
+    private boolean[] done = new boolean[DEFAULT_INIT_SIZE]; // for each variable, whether it has been visited..
+    private final InfRational c_gamma = new InfRational(); // a scratch value for the changes..
+    private long n_repairs = 0; // the number of repairing visits..
+
+    public DLTheory(final Sat sat) {
+        this.sat = sat;
+        sat.addTheory(this);
+        newVar(); // the origin..
+    }
+
+    public int newVar() {
+        final int id = n_vars++;
+        ensureCapacity(n_vars);
+        vals[id] = new InfRational();
+        out[id] = new EdgeList();
+        gamma[id] = new InfRational();
+        heap_pos[id] = -1;
+        return id;
+    }
+
+    public int newLt(final Lin left, final Lin right) {
+        return new_assertion(left.minus(right), true);
+    }
+
+    public int newLEq(final Lin left, final Lin right) {
+        return new_assertion(left.minus(right), false);
+    }
+
+    public int newEq(final Lin left, final Lin right) {
+        return sat.newConj(new Lit(newLEq(left, right)), new Lit(newGEq(left, right)));
+    }
+
+    public int newGEq(final Lin left, final Lin right) {
+        return new_assertion(right.minus(left), false);
+    }
+
+    public int newGt(final Lin left, final Lin right) {
+        return new_assertion(right.minus(left), true);
+    }
+
+    /**
+     * Creates a new assertion enforcing that the given linear expression is
+     * lower than (or equal to, if not strict) zero. The terms of the linear
+     * expression must have either the form {@code c*x - c*y}, {@code c*x} or
+     * {@code -c*x}, with {@code c} positive, in which case the constraint is
+     * normalized by dividing it by {@code c}. Assertions must be created at
+     * root level, since those created afterwards would not be propagated
+     * against the already enforced edges.
+     *
+     * @throws IllegalArgumentException if the linear expression does not
+     * represent a difference constraint.
+     */
+    private int new_assertion(final Lin l, final boolean strict) {
+        assert sat.rootLevel() : "constraints should be created at root level..";
+        if (l.size() > 2 || (l.size() == 2 && l.coeff(0).plus(l.coeff(1)).neq(0))) {
+            throw new IllegalArgumentException("not a difference constraint: " + l);
+        }
+        final Rational c_right = l.known_term.minus();
+        int to = ORIGIN;
+        int from = ORIGIN;
+        if (!l.isEmpty()) {
+            final Rational c = l.coeff(0);
+            if (c.isPositive()) {
+                to = l.var(0);
+                if (l.size() == 2) {
+                    from = l.var(1);
+                }
+                c_right.div(c);
+            } else {
+                from = l.var(0);
+                if (l.size() == 2) {
+                    to = l.var(1);
+                }
+                c_right.div(c.minus());
+            }
+        }
+        final InfRational dist = new InfRational(c_right, strict ? -1 : 0);
+        if (to == from) { // the constraint is either trivially satisfied or unsatisfable..
+            return dist.geq(0) ? TRUE_var : FALSE_var;
+        }
+
+        AssertionList as = pairs.get(key(from, to));
+        if (as == null) {
+            as = new AssertionList();
+            pairs.put(key(from, to), as);
+        } else {
+            final Assertion a = as.get(dist);
+            if (a != null) {
+                return a.b;
+            }
+        }
+        final int ctr = sat.newVar();
+        sat.bind(ctr, this);
+        final Assertion a = new Assertion(ctr, from, to, dist);
+        v_asrts.put(ctr, a);
+        as.add_sorted(a);
+        return ctr;
+    }
+
+    /**
+     * Returns the current value of variable 'v', relative to the origin.
+     *
+     * @param v the variable whose value we are interested in.
+     * @return the value of variable 'v'.
+     */
+    public InfRational value(final int v) {
+        return vals[v].minus(vals[ORIGIN]);
+    }
+
+    @Override
+    public boolean propagate(final Lit p, final List<Lit> cnfl) {
+        assert cnfl.isEmpty();
+        final Assertion a = v_asrts.get(p.v);
+        final Edge e = p.sign ? a.pos : a.neg;
+        return enforce(e, cnfl) && propagate(e, cnfl);
+    }
+
+    @Override
+    public boolean check(final List<Lit> cnfl) {
+        assert cnfl.isEmpty();
+        return true; // the enforced constraints are kept consistent while propagating..
+    }
+
+    @Override
+    public void push() {
+        trail_lim.add(trail.size());
+    }
+
+    @Override
+    public void pop() {
+        // we remove the edges enforced within the last level, in reverse chronological order..
+        final int lim = trail_lim.popInt();
+        while (trail.size() > lim) {
+            final Edge e = trail.pop();
+            final Edge top = out[e.from].pop();
+            assert top == e;
+        }
+    }
+
+    /**
+     * Enforces the given edge, repairing the current values if they violate
+     * it.
+     *
+     * @return {@code false} if the edge closes a negative cycle, in which case
+     * the conflict clause is filled with the negation of the reasons of the
+     * edges of the cycle.
+     */
+    private boolean enforce(final Edge e, final List<Lit> cnfl) {
+        // the change of the value of 'e.to' required for satisfying the edge..
+        c_gamma.set(vals[e.from]);
+        c_gamma.add(e.dist);
+        c_gamma.sub(vals[e.to]);
+        if (c_gamma.lt(0)) {
+            n_repairs++;
+            gamma[e.to].set(c_gamma);
+            pred[e.to] = e;
+            heap_push(e.to);
+            while (heap_size > 0) {
+                final int s = heap_pop();
+                if (s == e.from) { // we have found a negative cycle..
+                    cnfl.add(e.reason.not());
+                    for (Edge c = pred[e.from]; c != e; c = pred[c.from]) {
+                        cnfl.add(c.reason.not());
+                    }
+                    clear();
+                    return false;
+                }
+                done[s] = true;
+                visited.add(s);
+                // we propagate the change to the successors of 's'..
+                final EdgeList s_out = out[s];
+                for (int i = 0; i < s_out.size(); i++) {
+                    final Edge c = s_out.get(i);
+                    if (done[c.to]) {
+                        continue;
+                    }
+                    // the value of 's', once changed, plus the weight, minus the value of the successor..
+                    c_gamma.set(vals[s]);
+                    c_gamma.add(gamma[s]);
+                    c_gamma.add(c.dist);
+                    c_gamma.sub(vals[c.to]);
+                    if (c_gamma.lt(0) && (heap_pos[c.to] < 0 || c_gamma.lt(gamma[c.to]))) {
+                        gamma[c.to].set(c_gamma);
+                        pred[c.to] = c;
+                        heap_push(c.to);
+                    }
+                }
+            }
+            // we apply the changes..
+            for (int i = 0; i < visited.size(); i++) {
+                vals[visited.getInt(i)].add(gamma[visited.getInt(i)]);
+            }
+            clear();
+        }
+
+        out[e.from].add(e);
+        if (!trail_lim.isEmpty()) {
+            trail.add(e);
+        }
+        return true;
+    }
+
+    /**
+     * Propagates the given, just enforced, edge to the assertions on the same
+     * pair of variables.
+     */
+    private boolean propagate(final Edge e, final List<Lit> cnfl) {
+        // the assertions on 'e.to - e.from' which are implied by the edge..
+        final AssertionList same = pairs.get(key(e.from, e.to));
+        if (same != null) {
+            for (int i = 0; i < same.size(); i++) {
+                final Assertion a = same.get(i);
+                if (a.pos != e && a.neg != e && e.dist.leq(a.pos.dist) && !propagate(new Lit(a.b), e, cnfl)) {
+                    return false;
+                }
+            }
+        }
+        // the assertions on 'e.from - e.to' which, together with the edge, would close a negative cycle..
+        final AssertionList opposite = pairs.get(key(e.to, e.from));
+        if (opposite != null) {
+            for (int i = 0; i < opposite.size(); i++) {
+                final Assertion a = opposite.get(i);
+                if (a.pos != e && a.neg != e && e.dist.plus(a.pos.dist).lt(0) && !propagate(new Lit(a.b, false), e, cnfl)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean propagate(final Lit p, final Edge e, final List<Lit> cnfl) {
+        switch (sat.value(p)) {
+        case False: // we have a propositional inconsistency..
+            cnfl.add(p); // either the literal 'p' is true ..
+            cnfl.add(e.reason.not()); // or what enforced the edge is false..
+            return false;
+        case Undefined: // we propagate information to the sat core..
+            sat.record(p, e.reason.not());
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of visits performed so far for repairing the values.
+     *
+     * @return the number of repairing visits.
+     */
+    public long repairs() {
+        return n_repairs;
+    }
+
+    private void clear() {
+        while (heap_size > 0) {
+            heap_pos[heap[--heap_size]] = -1;
+        }
+        for (int i = 0; i < visited.size(); i++) {
+            done[visited.getInt(i)] = false;
+        }
+        visited.clear();
+    }
+
+    /**
+     * Adds variable 'v' to the heap or, if already there, moves it according
+     * to its decreased change.
+     */
+    private void heap_push(final int v) {
+        int i = heap_pos[v];
+        if (i < 0) {
+            i = heap_size++;
+        }
+        // we sift up..
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (!gamma[v].lt(gamma[heap[parent]])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heap_pos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heap_pos[v] = i;
+    }
+
+    /**
+     * Removes from the heap the variable with the lowest change.
+     */
+    private int heap_pop() {
+        final int top = heap[0];
+        heap_pos[top] = -1;
+        final int v = heap[--heap_size];
+        if (heap_size > 0) {
+            // we sift down..
+            int i = 0;
+            while (true) {
+                int child = (i << 1) + 1;
+                if (child >= heap_size) {
+                    break;
+                }
+                if (child + 1 < heap_size && gamma[heap[child + 1]].lt(gamma[heap[child]])) {
+                    child++;
+                }
+                if (!gamma[heap[child]].lt(gamma[v])) {
+                    break;
+                }
+                heap[i] = heap[child];
+                heap_pos[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = v;
+            heap_pos[v] = i;
+        }
+        return top;
+    }
+
+    private static long key(final int from, final int to) {
+        return ((long) from << 32) | to;
+    }
+
+    private void ensureCapacity(final int minCapacity) {
+        int capacity = vals.length;
+        if (minCapacity > capacity) {
+            while (minCapacity > capacity) {
+                capacity = (capacity * 3) / 2 + 1;
+            }
+
+            InfRational[] c_vals = new InfRational[capacity];
+            System.arraycopy(vals, 0, c_vals, 0, vals.length);
+            vals = c_vals;
+
+            EdgeList[] c_out = new EdgeList[capacity];
+            System.arraycopy(out, 0, c_out, 0, out.length);
+            out = c_out;
+
+            InfRational[] c_gamma = new InfRational[capacity];
+            System.arraycopy(gamma, 0, c_gamma, 0, gamma.length);
+            gamma = c_gamma;
+
+            Edge[] c_pred = new Edge[capacity];
+            System.arraycopy(pred, 0, c_pred, 0, pred.length);
+            pred = c_pred;
+
+            int[] c_heap = new int[capacity];
+            System.arraycopy(heap, 0, c_heap, 0, heap.length);
+            heap = c_heap;
+
+            int[] c_heap_pos = new int[capacity];
+            System.arraycopy(heap_pos, 0, c_heap_pos, 0, heap_pos.length);
+            heap_pos = c_heap_pos;
+
+            boolean[] c_done = new boolean[capacity];
+            System.arraycopy(done, 0, c_done, 0, done.length);
+            done = c_done;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < n_vars; i++) {
+            sb.append("x").append(i).append(": ").append(value(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Represents an edge of the constraint graph, i.e. the constraint
+     * {@code to - from <= dist}, and the reason for its existence.
+     */
+    static class Edge {
+
+        final int from; // the source of the edge..
+        final int to; // the target of the edge..
+        final InfRational dist; // the weight of the edge..
+        final Lit reason; // the reason for the edge..
+
+        Edge(final int from, final int to, final InfRational dist, final Lit reason) {
+            this.from = from;
+            this.to = to;
+            this.dist = dist;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return "x" + from + " -> x" + to + " [" + dist.toString() + "]";
+        }
+    }
+
+    static class EdgeList extends ObjectArrayList<Edge> {
+    }
+
+    /**
+     * The assertions on the same pair of variables, sorted by increasing
+     * distance.
+     */
+    static class AssertionList extends ObjectArrayList<Assertion> {
+
+        /**
+         * Adds the given assertion, keeping the assertions sorted.
+         */
+        void add_sorted(final Assertion a) {
+            add(lower_bound(a.pos.dist), a);
+        }
+
+        /**
+         * Returns the assertion with the given distance, or {@code null} if
+         * there is none.
+         */
+        Assertion get(final InfRational dist) {
+            final int i = lower_bound(dist);
+            return i < size() && get(i).pos.dist.eq(dist) ? get(i) : null;
+        }
+
+        /**
+         * Returns the index of the first assertion whose distance is not
+         * lower than {@code dist}.
+         */
+        private int lower_bound(final InfRational dist) {
+            int lo = 0, hi = size();
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (get(mid).pos.dist.lt(dist)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -25,7 +25,9 @@ import it.cnr.istc.pst.semitone.sat.Lit;
 
 /**
  * This class is used for representing assertions of the linear real arithmetic
- * (LRA) theory.
+ * (LRA) theory. The assertions on a variable are indexed by value, so that
+ * only the strongest assertions made true or false by a bound change are
+ * notified, the weaker ones being implied through binary clauses.
  *
  * @author Riccardo De Benedictis
  */
@@ -57,26 +59,26 @@ class Assertion {
      */
     boolean propagate_lb(final int x_i, final List<Lit> cnfl) {
         assert cnfl.isEmpty();
-        if (th.lb(x_i).gt(v)) {
+        if (op == Op.LEq ? th.bounds.gt(lb_index(x_i), v) : !th.bounds.lt(lb_index(x_i), v)) {
             switch (op) {
             case LEq: // the assertion is unsatisfable: [x_i >= lb(x_i)] -> ![x_i <= v]..
                 switch (th.sat.value(b)) {
                 case True: // we have a propositional inconsistency..
                     cnfl.add(new Lit(b, false)); // either the literal 'b' is false ..
-                    cnfl.add(th.bounds[lb_index(x_i)].reason.not()); // or what asserted the lower bound is false..
+                    cnfl.add(th.reasons[lb_index(x_i)].not()); // or what asserted the lower bound is false..
                     return false;
                 case Undefined: // we propagate information to the sat core..
-                    th.sat.record(new Lit(b, false), th.bounds[lb_index(x_i)].reason.not());
+                    th.sat.record(new Lit(b, false), th.reasons[lb_index(x_i)].not());
                 }
                 break;
             case GEq: // the assertion is satisfied; [x_i >= lb(x_i)] -> [x_i >= v]..
                 switch (th.sat.value(b)) {
                 case False: // we have a propositional inconsistency..
                     cnfl.add(new Lit(b)); // either the literal 'b' is true ..
-                    cnfl.add(th.bounds[lb_index(x_i)].reason.not()); // or what asserted the lower bound is false..
+                    cnfl.add(th.reasons[lb_index(x_i)].not()); // or what asserted the lower bound is false..
                     return false;
                 case Undefined: // we propagate information to the sat core..
-                    th.sat.record(new Lit(b), th.bounds[lb_index(x_i)].reason.not());
+                    th.sat.record(new Lit(b), th.reasons[lb_index(x_i)].not());
                 }
                 break;
             }
@@ -95,26 +97,26 @@ class Assertion {
      */
     boolean propagate_ub(final int x_i, final List<Lit> cnfl) {
         assert cnfl.isEmpty();
-        if (th.ub(x_i).lt(v)) {
+        if (op == Op.LEq ? !th.bounds.gt(ub_index(x_i), v) : th.bounds.lt(ub_index(x_i), v)) {
             switch (op) {
             case LEq: // the assertion is satisfied: [x_i <= ub(x_i)] -> [x_i <= v]..
                 switch (th.sat.value(b)) {
                 case False: // we have a propositional inconsistency..
                     cnfl.add(new Lit(b)); // either the literal 'b' is true ..
-                    cnfl.add(th.bounds[ub_index(x_i)].reason.not()); // or what asserted the upper bound is false..
+                    cnfl.add(th.reasons[ub_index(x_i)].not()); // or what asserted the upper bound is false..
                     return false;
                 case Undefined: // we propagate information to the sat core..
-                    th.sat.record(new Lit(b), th.bounds[ub_index(x_i)].reason.not());
+                    th.sat.record(new Lit(b), th.reasons[ub_index(x_i)].not());
                 }
                 break;
             case GEq: // the assertion is unsatisfable; [x_i <= ub(x_i)] -> ![x_i >= v]..
                 switch (th.sat.value(b)) {
                 case True: // we have a propositional inconsistency..
                     cnfl.add(new Lit(b, false)); // either the literal 'b' is false ..
-                    cnfl.add(th.bounds[ub_index(x_i)].reason.not()); // or what asserted the upper bound is false..
+                    cnfl.add(th.reasons[ub_index(x_i)].not()); // or what asserted the upper bound is false..
                     return false;
                 case Undefined: // we propagate information to the sat core..
-                    th.sat.record(new Lit(b, false), th.bounds[ub_index(x_i)].reason.not());
+                    th.sat.record(new Lit(b, false), th.reasons[ub_index(x_i)].not());
                 }
                 break;
             }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.lra;
+
+/**
+ * This class is used for representing the nonzero entries of the tableau.
+ * Each entry is linked, at the same time, into the list of the entries of its
+ * row and into the list of the entries of its column, so that both the terms
+ * of a row and the rows containing a variable can be visited, and an entry
+ * can be added or removed, without searching.
+ *
+ * @author Riccardo De Benedictis
+ */
+class Entry {
+
+    Row row; // the row of the entry, changed when the entry is reused..
+    int var; // the column (i.e., the non-basic variable) of the entry, changed when the entry is reused..
+    final Rational coeff; // the coefficient of the variable within the row..
+    Entry row_prev, row_next; // the previous and the next entries within the row..
+    Entry col_prev, col_next; // the previous and the next entries within the column..
+
+    Entry(final Row row, final int var, final Rational coeff) {
+        this.row = row;
+        this.var = var;
+        this.coeff = coeff;
+    }
+
+    @Override
+    public String toString() {
+        return "x" + row.x + "[x" + var + "] = " + coeff.toString();
+    }
+}
@@ -63,7 +63,7 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public boolean neq(final InfRational rhs) {
-        return rat.neq(rhs.rat) && inf.neq(rhs.inf);
+        return rat.neq(rhs.rat) || inf.neq(rhs.inf);
     }
 
     public boolean lt(final InfRational rhs) {
@@ -71,7 +71,7 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public boolean leq(final InfRational rhs) {
-        return rat.leq(rhs.rat) || (rat.eq(rhs.rat) && inf.leq(rhs.inf));
+        return rat.lt(rhs.rat) || (rat.eq(rhs.rat) && inf.leq(rhs.inf));
     }
 
     public boolean eq(final InfRational rhs) {
@@ -79,7 +79,7 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public boolean geq(final InfRational rhs) {
-        return rat.geq(rhs.rat) || (rat.eq(rhs.rat) && inf.geq(rhs.inf));
+        return rat.gt(rhs.rat) || (rat.eq(rhs.rat) && inf.geq(rhs.inf));
     }
 
     public boolean gt(final InfRational rhs) {
@@ -87,7 +87,7 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public boolean neq(final Rational rhs) {
-        return rat != rhs || inf.num != 0;
+        return rat.neq(rhs) || inf.num != 0;
     }
 
     public boolean lt(final Rational rhs) {
@@ -95,7 +95,7 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public boolean leq(final Rational rhs) {
-        return rat.leq(rhs) || (rat.eq(rhs) && inf.num <= 0);
+        return rat.lt(rhs) || (rat.eq(rhs) && inf.num <= 0);
     }
 
     public boolean eq(final Rational rhs) {
@@ -103,7 +103,7 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public boolean geq(final Rational rhs) {
-        return rat.geq(rhs) || (rat.eq(rhs) && inf.num >= 0);
+        return rat.gt(rhs) || (rat.eq(rhs) && inf.num >= 0);
     }
 
     public boolean gt(final Rational rhs) {
@@ -119,7 +119,7 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public boolean leq(final long rhs) {
-        return rat.leq(rhs) || (rat.eq(rhs) && inf.num <= 0);
+        return rat.lt(rhs) || (rat.eq(rhs) && inf.num <= 0);
     }
 
     public boolean eq(final long rhs) {
@@ -127,7 +127,7 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public boolean geq(final long rhs) {
-        return rat.geq(rhs) || (rat.eq(rhs) && inf.num >= 0);
+        return rat.gt(rhs) || (rat.eq(rhs) && inf.num >= 0);
     }
 
     public boolean gt(final long rhs) {
@@ -135,43 +135,63 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public InfRational plus(final InfRational rhs) {
-        return new InfRational(rat.plus(rhs.rat), inf.plus(rhs.inf));
+        final InfRational res = new InfRational(this);
+        res.add(rhs);
+        return res;
     }
 
     public InfRational minus(final InfRational rhs) {
-        return new InfRational(rat.minus(rhs.rat), inf.minus(rhs.inf));
+        final InfRational res = new InfRational(this);
+        res.sub(rhs);
+        return res;
     }
 
     public InfRational plus(final Rational rhs) {
-        return new InfRational(rat.plus(rhs), new Rational(inf));
+        final InfRational res = new InfRational(this);
+        res.add(rhs);
+        return res;
     }
 
     public InfRational minus(final Rational rhs) {
-        return new InfRational(rat.minus(rhs), new Rational(inf));
+        final InfRational res = new InfRational(this);
+        res.sub(rhs);
+        return res;
     }
 
     public InfRational times(final Rational rhs) {
-        return new InfRational(rat.times(rhs), inf.times(rhs));
+        final InfRational res = new InfRational(this);
+        res.mult(rhs);
+        return res;
     }
 
     public InfRational divide(final Rational rhs) {
-        return new InfRational(rat.divide(rhs), inf.divide(rhs));
+        final InfRational res = new InfRational(this);
+        res.div(rhs);
+        return res;
     }
 
     public InfRational plus(final long rhs) {
-        return new InfRational(rat.plus(rhs), new Rational(inf));
+        final InfRational res = new InfRational(this);
+        res.add(rhs);
+        return res;
     }
 
     public InfRational minus(final long rhs) {
-        return new InfRational(rat.minus(rhs), new Rational(inf));
+        final InfRational res = new InfRational(this);
+        res.sub(rhs);
+        return res;
     }
 
     public InfRational times(final long rhs) {
-        return new InfRational(rat.times(rhs), inf.times(rhs));
+        final InfRational res = new InfRational(this);
+        res.mult(rhs);
+        return res;
     }
 
     public InfRational divide(final long rhs) {
-        return new InfRational(rat.divide(rhs), inf.divide(rhs));
+        final InfRational res = new InfRational(this);
+        res.div(rhs);
+        return res;
     }
 
     public void add(final InfRational rhs) {
@@ -193,11 +213,13 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public void mult(final Rational rhs) {
-        rat.add(rhs);
+        rat.mult(rhs);
+        inf.mult(rhs);
     }
 
     public void div(final Rational rhs) {
-        rat.sub(rhs);
+        rat.div(rhs);
+        inf.div(rhs);
     }
 
     public void add(final long rhs) {
@@ -209,15 +231,81 @@ public class InfRational implements Comparable<InfRational> {
     }
 
     public void mult(final long rhs) {
-        rat.add(rhs);
+        rat.mult(rhs);
+        inf.mult(rhs);
     }
 
     public void div(final long rhs) {
-        rat.sub(rhs);
+        rat.div(rhs);
+        inf.div(rhs);
+    }
+
+    /**
+     * Adds to this value the product of the given value and the given
+     * coefficient, without creating intermediate objects.
+     *
+     * @param v the value.
+     * @param c the coefficient.
+     */
+    public void addMul(final InfRational v, final Rational c) {
+        rat.addMul(v.rat, c);
+        inf.addMul(v.inf, c);
+    }
+
+    /**
+     * Subtracts from this value the product of the given value and the given
+     * coefficient, without creating intermediate objects.
+     *
+     * @param v the value.
+     * @param c the coefficient.
+     */
+    public void subMul(final InfRational v, final Rational c) {
+        rat.subMul(v.rat, c);
+        inf.subMul(v.inf, c);
+    }
+
+    /**
+     * Sets this value to the given one.
+     *
+     * @param v the new value.
+     */
+    public void set(final InfRational v) {
+        rat.set(v.rat);
+        inf.set(v.inf);
+    }
+
+    /**
+     * Sets this value to the given rational, with no infinitesimal part.
+     *
+     * @param v the new value.
+     */
+    public void set(final Rational v) {
+        rat.set(v);
+        inf.set(0);
+    }
+
+    /**
+     * Sets this value to the given integer, with no infinitesimal part.
+     *
+     * @param v the new value.
+     */
+    public void set(final long v) {
+        rat.set(v);
+        inf.set(0);
+    }
+
+    /**
+     * Changes the sign of this value.
+     */
+    public void negate() {
+        rat.negate();
+        inf.negate();
     }
 
     public InfRational minus() {
-        return new InfRational(rat.minus(), inf.minus());
+        final InfRational neg = new InfRational(this);
+        neg.negate();
+        return neg;
     }
 
     @Override
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.lra;
+
+/**
+ * This class is used for storing, in a flattened form, the values of the
+ * variables of the linear real arithmetic (LRA) theory. Each value is stored
+ * as four consecutive {@code long}s (the numerator and the denominator of its
+ * rational part followed by those of its infinitesimal part) within a single
+ * primitive array, so that the values of the simplex are contiguous in memory
+ * and no pointer has to be followed for reading them. Values which do not fit
+ * into {@code long}s are stored, as objects, aside.
+ *
+ * @author Riccardo De Benedictis
+ */
+class InfRationalArray {
+
+    private long[] data; // for each value, the numerator and the denominator of its rational part followed by those of its infinitesimal part..
+    private InfRational[] big; // for each value, the value itself if it does not fit into longs, null otherwise..
+    private final InfRational tmp = new InfRational(); // a scratch value for the in-place operations..
+
+    InfRationalArray(final int capacity) {
+        this.data = new long[capacity << 2];
+        this.big = new InfRational[capacity];
+    }
+
+    int capacity() {
+        return big.length;
+    }
+
+    /**
+     * Copies the {@code i}-th value into the given value.
+     *
+     * @param i the index of the value.
+     * @param v the value which will contain the {@code i}-th value.
+     */
+    void get(final int i, final InfRational v) {
+        if (big[i] != null) {
+            v.set(big[i]);
+        } else {
+            final int j = i << 2;
+            v.rat.set(data[j], data[j + 1]);
+            v.inf.set(data[j + 2], data[j + 3]);
+        }
+    }
+
+    /**
+     * Sets the {@code i}-th value to the given value.
+     *
+     * @param i the index of the value.
+     * @param v the new value.
+     */
+    void set(final int i, final InfRational v) {
+        if (v.rat.isBig() || v.inf.isBig()) {
+            if (big[i] == null) {
+                big[i] = new InfRational(v);
+            } else {
+                big[i].set(v);
+            }
+        } else {
+            big[i] = null;
+            final int j = i << 2;
+            data[j] = v.rat.num;
+            data[j + 1] = v.rat.den;
+            data[j + 2] = v.inf.num;
+            data[j + 3] = v.inf.den;
+        }
+    }
+
+    /**
+     * Sets the {@code i}-th value to the {@code j}-th value of the given
+     * array, without going through an intermediate value.
+     *
+     * @param i the index of the value.
+     * @param src the array containing the new value.
+     * @param j the index of the new value within {@code src}.
+     */
+    void set(final int i, final InfRationalArray src, final int j) {
+        if (src.big[j] != null) {
+            set(i, src.big[j]);
+        } else {
+            big[i] = null;
+            System.arraycopy(src.data, j << 2, data, i << 2, 4);
+        }
+    }
+
+    /**
+     * Sets the first {@code n} values to those of the given array.
+     *
+     * @param src the array containing the new values.
+     * @param n the number of values to copy.
+     */
+    void set(final InfRationalArray src, final int n) {
+        System.arraycopy(src.data, 0, data, 0, n << 2);
+        for (int i = 0; i < n; i++) {
+            if (src.big[i] != null) {
+                set(i, src.big[i]);
+            } else {
+                big[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Adds the given value to the {@code i}-th value.
+     *
+     * @param i the index of the value.
+     * @param v the value to add.
+     */
+    void add(final int i, final InfRational v) {
+        get(i, tmp);
+        tmp.add(v);
+        set(i, tmp);
+    }
+
+    /**
+     * Adds the product of the given value and the given coefficient to the
+     * {@code i}-th value.
+     *
+     * @param i the index of the value.
+     * @param v the value.
+     * @param c the coefficient.
+     */
+    void addMul(final int i, final InfRational v, final Rational c) {
+        get(i, tmp);
+        tmp.addMul(v, c);
+        set(i, tmp);
+    }
+
+    /**
+     * Compares the {@code i}-th value with the given value.
+     *
+     * @param i the index of the value.
+     * @param v the value to compare with.
+     * @return a negative integer, zero, or a positive integer as the
+     * {@code i}-th value is less than, equal to, or greater than {@code v}.
+     */
+    int compare(final int i, final InfRational v) {
+        if (big[i] != null || v.rat.isBig() || v.inf.isBig()) {
+            get(i, tmp);
+            return tmp.compareTo(v);
+        }
+        final int j = i << 2;
+        final int rat_comp = Rational.compare(data[j], data[j + 1], v.rat);
+        return rat_comp != 0 ? rat_comp : Rational.compare(data[j + 2], data[j + 3], v.inf);
+    }
+
+    boolean lt(final int i, final InfRational v) {
+        return compare(i, v) < 0;
+    }
+
+    boolean gt(final int i, final InfRational v) {
+        return compare(i, v) > 0;
+    }
+
+    void ensureCapacity(final int capacity) {
+        if (capacity > big.length) {
+            long[] c_data = new long[capacity << 2];
+            System.arraycopy(data, 0, c_data, 0, data.length);
+            data = c_data;
+
+            InfRational[] c_big = new InfRational[capacity];
+            System.arraycopy(big, 0, c_big, 0, big.length);
+            big = c_big;
+        }
+    }
+}
@@ -21,20 +21,18 @@ import static it.cnr.istc.pst.semitone.lra.Rational.POSITIVE_INFINITY;
 import static it.cnr.istc.pst.semitone.sat.Sat.FALSE_var;
 import static it.cnr.istc.pst.semitone.sat.Sat.TRUE_var;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
 import java.util.List;
-import java.util.Optional;
 
+import it.cnr.istc.pst.semitone.sat.LBool;
 import it.cnr.istc.pst.semitone.sat.Lit;
 import it.cnr.istc.pst.semitone.sat.Sat;
 import it.cnr.istc.pst.semitone.sat.Theory;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 
 /**
  *
@@ -43,94 +41,97 @@ import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 public class LRATheory implements Theory {
 
     private static final int DEFAULT_INIT_SIZE = 16;
+    private static final Rational ONE = new Rational(1);
+    private static final int BLAND_ROWS_FACTOR = 4; // the number of pivots, per tableau row, after which Bland's rule is used by default..
     final Sat sat;
     private int n_vars = 0;
-    Bound[] bounds = new Bound[DEFAULT_INIT_SIZE << 1]; // the current bounds..
-    private InfRational[] vals = new InfRational[DEFAULT_INIT_SIZE]; // the current values..
+    private int n_rows = 0; // the number of rows of the tableau..
+    final InfRationalArray bounds = new InfRationalArray(DEFAULT_INIT_SIZE << 1); // the current bounds (the lower bound of 'v' at 'v << 1', the upper bound at '(v << 1) ^ 1')..
+    Lit[] reasons = new Lit[DEFAULT_INIT_SIZE << 1]; // the reasons of the current bounds..
+    private final InfRationalArray vals = new InfRationalArray(DEFAULT_INIT_SIZE); // the current values..
     AssertionList[] a_watches = new AssertionList[DEFAULT_INIT_SIZE]; // for each variable 'v', a list of assertions watching 'v'..
-    RowSet[] t_watches = new RowSet[DEFAULT_INIT_SIZE]; // for each variable 'v', a list of tableau rows watching 'v'..
+    private Column[] cols = new Column[DEFAULT_INIT_SIZE]; // for each variable 'v', the column of the tableau, linking the entries of 'v'..
+    private Entry[] work = new Entry[DEFAULT_INIT_SIZE]; // a scratch array, indexed by variable, for scattering the rows while pivoting..
+    private Entry free_entries; // the entries removed from the tableau, linked through 'row_next', for being reused..
     private final Int2ObjectMap<Assertion> v_asrts = new Int2ObjectOpenHashMap<>(); // the assertions (propositional variable to assertion) used for enforcing (negating) assertions..
-    private final Int2ObjectMap<Row> tableau = new Int2ObjectOpenHashMap<>(); // the sparse matrix..
-    private final Object2IntMap<String> exprs = new Object2IntOpenHashMap<>(); // the already existing expressions (string to variable)..
-    private final Deque<Int2ObjectMap<Bound>> layers = new ArrayDeque<>(); // we store the updated bounds..
+    private Row[] tableau = new Row[DEFAULT_INIT_SIZE]; // for each variable 'v', the tableau row having 'v' as basic variable or null if 'v' is non-basic..
+    private int[] heap = new int[DEFAULT_INIT_SIZE]; // the basic variables whose value is outside their bounds, sorted according to 'heap_rule'..
+    private int heap_size = 0; // the number of basic variables whose value is outside their bounds..
+    private int[] heap_pos = new int[DEFAULT_INIT_SIZE]; // for each variable, its position within the heap or -1 if not in the heap..
+    private InfRational[] viols = new InfRational[DEFAULT_INIT_SIZE]; // for each variable within the heap, the violation of its bound..
+    private RowRule heap_rule = RowRule.Bland; // the rule according to which the heap is sorted..
+    private final Object2IntMap<Lin> exprs = new Object2IntOpenHashMap<>(); // the already existing expressions (linear expression to slack variable)..
+    private int[] trail = new int[DEFAULT_INIT_SIZE]; // the updated bounds, in chronological order..
+    private final InfRationalArray trail_vals = new InfRationalArray(DEFAULT_INIT_SIZE); // the values of the updated bounds before their update..
+    private Lit[] trail_reasons = new Lit[DEFAULT_INIT_SIZE]; // the reasons of the updated bounds before their update..
+    private int trail_size = 0; // the number of updated bounds..
+    private final IntArrayList trail_lim = new IntArrayList(); // for each decision level, the size of the trail at its beginning..
+    private RowRule row_rule = RowRule.Bland; // the rule for choosing the leaving variable..
+    private ColumnRule column_rule = ColumnRule.Bland; // the rule for choosing the entering variable..
+    private int bland_threshold = -1; // the number of pivots, within a single check, after which Bland's rule is used, or -1 for a multiple of the number of rows..
+    private boolean cache_assignments = false; // whether the last feasible assignment is cached for being restored on backtracking..
+    private final InfRationalArray feasible_vals = new InfRationalArray(DEFAULT_INIT_SIZE); // the last feasible assignment..
+    private int feasible_level = -1; // the highest decision level whose bounds are satisfied by the cached assignment, -1 if none..
+    private long n_pivots = 0; // the number of pivots..
+    private long n_restores = 0; // the number of times the cached assignment has been restored..
+    private long n_rows_scanned = 0; // the number of infeasible basic variables chosen for leaving the basis..
+    private final InfRational delta = new InfRational(); // a scratch accumulator for the updates of the values..
+    private final InfRational c_val = new InfRational(); // a scratch value for reading the current values..
+    private final InfRational c_bound = new InfRational(); // a scratch value for reading the current bounds..
+    private final InfRational p_bound = new InfRational(); // a scratch value for reading the previous bounds..
+    final InfRational row_bound = new InfRational(); // a scratch value for reading the bounds while recomputing the rows..
+    private final InfRational step = new InfRational(); // a scratch value for the steps of the primal simplex..
+    private final InfRational min_step = new InfRational(); // a scratch value for the shortest step of the primal simplex..
+    private final Rational pivot_coeff = new Rational(); // a scratch value for the coefficient of the entering variable while pivoting..
 
     public LRATheory(final Sat sat) {
         this.sat = sat;
         sat.addTheory(this);
+        exprs.defaultReturnValue(-1);
     }
 
     public int newVar() {
+        feasible_level = -1; // the cached assignment does not cover the new variable..
         final int id = n_vars++;
-        ensureCapacity(id);
-        vals[id] = new InfRational();
-        bounds[id << 1] = new Bound(new InfRational(NEGATIVE_INFINITY), null);
-        bounds[(id << 1) ^ 1] = new Bound(new InfRational(POSITIVE_INFINITY), null);
+        ensureCapacity(n_vars);
+        vals.set(id, new InfRational());
+        bounds.set(lb_index(id), new InfRational(NEGATIVE_INFINITY));
+        bounds.set(ub_index(id), new InfRational(POSITIVE_INFINITY));
         a_watches[id] = new AssertionList();
-        t_watches[id] = new RowSet();
+        cols[id] = new Column();
+        heap_pos[id] = -1;
+        viols[id] = new InfRational();
         return id;
     }
 
     public int newVar(final Lin l) {
-        return exprs.computeIntIfAbsent(l.toString(), s_xpr -> {
-            final int slack = newVar();
-            vals[slack] = value(l); // we set the initial value of the new slack variable..
-            tableau.put(slack, new Row(this, slack, l)); // we add a new row into the tableau..
-            return slack;
-        });
+        if (l.size() == 1 && l.coeff(0).eq(1) && l.known_term.eq(0)) {
+            return l.var(0); // no need for a slack variable..
+        }
+        final int c_slack = exprs.getInt(l);
+        if (c_slack >= 0) {
+            return c_slack;
+        }
+        final int slack = newVar();
+        vals.set(slack, value(l)); // we set the initial value of the new slack variable..
+        tableau[slack] = new Row(this, slack, l); // we add a new row into the tableau..
+        n_rows++;
+        exprs.put(new Lin(l), slack); // the key is a copy, since the given expression might be later modified..
+        return slack;
     }
 
     public int newLt(final Lin left, final Lin right) {
-        Lin l_xpr = left.minus(right);
-        for (int var : l_xpr.vars.keySet().toIntArray()) {
-            Row row = tableau.get(var);
-            if (row != null) {
-                l_xpr.add(row.l.times(l_xpr.vars.remove(var)));
-            }
-        }
-
-        final InfRational c_right = new InfRational(l_xpr.known_term.minus(), -1);
+        final Lin l_xpr = expr(left, right);
+        final Rational c_right = l_xpr.known_term.minus();
         l_xpr.known_term = new Rational();
-
-        if (ub(l_xpr).lt(c_right)) {
-            return TRUE_var; // the constraint is already satisfied..
-        } else if (lb(l_xpr).geq(c_right)) {
-            return FALSE_var; // the constraint is unsatisfable..
-        }
-
-        final int slack = newVar(l_xpr);
-        return exprs.computeIntIfAbsent("x" + slack + " <= " + c_right.toString(), s_xpr -> {
-            final int ctr = sat.newVar();
-            sat.bind(ctr, this);
-            v_asrts.put(ctr, new Assertion(this, ctr, slack, Assertion.Op.LEq, c_right));
-            return ctr;
-        });
+        return new_constraint(l_xpr, Assertion.Op.LEq, c_right, true);
     }
 
     public int newLEq(final Lin left, final Lin right) {
-        Lin l_xpr = left.minus(right);
-        for (int var : l_xpr.vars.keySet().toIntArray()) {
-            Row row = tableau.get(var);
-            if (row != null) {
-                l_xpr.add(row.l.times(l_xpr.vars.remove(var)));
-            }
-        }
-
-        final InfRational c_right = new InfRational(l_xpr.known_term.minus());
+        final Lin l_xpr = expr(left, right);
+        final Rational c_right = l_xpr.known_term.minus();
         l_xpr.known_term = new Rational();
-
-        if (ub(l_xpr).leq(c_right)) {
-            return TRUE_var; // the constraint is already satisfied..
-        } else if (lb(l_xpr).gt(c_right)) {
-            return FALSE_var; // the constraint is unsatisfable..
-        }
-
-        final int slack = newVar(l_xpr);
-        return exprs.computeIntIfAbsent("x" + slack + " <= " + c_right.toString(), s_xpr -> {
-            final int ctr = sat.newVar();
-            sat.bind(ctr, this);
-            v_asrts.put(ctr, new Assertion(this, ctr, slack, Assertion.Op.LEq, c_right));
-            return ctr;
-        });
+        return new_constraint(l_xpr, Assertion.Op.LEq, c_right, false);
     }
 
     public int newEq(final Lin left, final Lin right) {
@@ -138,87 +139,145 @@ public class LRATheory implements Theory {
     }
 
     public int newGEq(final Lin left, final Lin right) {
-        Lin l_xpr = left.minus(right);
-        for (int var : l_xpr.vars.keySet().toIntArray()) {
-            Row row = tableau.get(var);
-            if (row != null) {
-                l_xpr.add(row.l.times(l_xpr.vars.remove(var)));
-            }
-        }
+        final Lin l_xpr = expr(left, right);
+        final Rational c_right = l_xpr.known_term.minus();
+        l_xpr.known_term = new Rational();
+        return new_constraint(l_xpr, Assertion.Op.GEq, c_right, false);
+    }
 
-        final InfRational c_right = new InfRational(l_xpr.known_term.minus());
+    public int newGt(final Lin left, final Lin right) {
+        final Lin l_xpr = expr(left, right);
+        final Rational c_right = l_xpr.known_term.minus();
         l_xpr.known_term = new Rational();
+        return new_constraint(l_xpr, Assertion.Op.GEq, c_right, true);
+    }
 
-        if (lb(l_xpr).geq(c_right)) {
-            return TRUE_var; // the constraint is already satisfied..
-        } else if (ub(l_xpr).lt(c_right)) {
-            return FALSE_var; // the constraint is unsatisfable..
+    /**
+     * Returns the controlling variable of the constraint 'l_xpr op c_right',
+     * where 'l_xpr' has no known term, creating it if not already existing.
+     * The constraint is normalized by dividing both sides by the first
+     * coefficient of 'l_xpr' (flipping the operator if it is negative), so
+     * that equivalent constraints (e.g., {@code x + y <= 4},
+     * {@code 2x + 2y <= 8} and {@code -x - y >= -4}) share the same slack
+     * variable and the same assertion. Constraints on a single variable (e.g.,
+     * {@code 2x <= 10}) become bounds (e.g., {@code x <= 5}) on the variable
+     * itself. Constraints must be created at root level, since the clauses
+     * linking the new assertion to the existing ones would be otherwise
+     * simplified against the current assignment and lost on backtracking.
+     */
+    private int new_constraint(final Lin l_xpr, final Assertion.Op op, final Rational c_right, final boolean strict) {
+        assert sat.rootLevel() : "constraints should be created at root level..";
+        Assertion.Op c_op = op;
+        if (!l_xpr.isEmpty() && l_xpr.coeff(0).neq(1)) {
+            final Rational c = new Rational(l_xpr.coeff(0));
+            l_xpr.div(c);
+            c_right.div(c);
+            if (c.isNegative()) {
+                c_op = op == Assertion.Op.LEq ? Assertion.Op.GEq : Assertion.Op.LEq;
+            }
         }
+        final InfRational v = new InfRational(c_right, strict ? (c_op == Assertion.Op.LEq ? -1 : 1) : 0);
 
-        final int slack = newVar(l_xpr);
-        return exprs.computeIntIfAbsent("x" + slack + " >= " + c_right.toString(), s_xpr -> {
-            final int ctr = sat.newVar();
-            sat.bind(ctr, this);
-            v_asrts.put(ctr, new Assertion(this, ctr, slack, Assertion.Op.GEq, c_right));
-            return ctr;
-        });
-    }
-
-    public int newGt(final Lin left, final Lin right) {
-        Lin l_xpr = left.minus(right);
-        for (int var : l_xpr.vars.keySet().toIntArray()) {
-            Row row = tableau.get(var);
-            if (row != null) {
-                l_xpr.add(row.l.times(l_xpr.vars.remove(var)));
+        switch (c_op) {
+        case LEq:
+            if (ub(l_xpr).leq(v)) {
+                return TRUE_var; // the constraint is already satisfied..
+            } else if (lb(l_xpr).gt(v)) {
+                return FALSE_var; // the constraint is unsatisfable..
+            }
+            break;
+        case GEq:
+            if (lb(l_xpr).geq(v)) {
+                return TRUE_var; // the constraint is already satisfied..
+            } else if (ub(l_xpr).lt(v)) {
+                return FALSE_var; // the constraint is unsatisfable..
             }
+            break;
+        default:
+            throw new AssertionError(c_op.name());
         }
 
-        final InfRational c_right = new InfRational(l_xpr.known_term.minus(), 1);
-        l_xpr.known_term = new Rational();
+        // single variable constraints are asserted directly on their variable, without any slack variable..
+        final int slack = l_xpr.size() == 1 ? l_xpr.var(0) : newVar(l_xpr);
+        final Assertion a = a_watches[slack].get(c_op, v);
+        return a != null ? a.b : new_assertion(slack, c_op, v);
+    }
 
-        if (lb(l_xpr).gt(c_right)) {
-            return TRUE_var; // the constraint is already satisfied..
-        } else if (ub(l_xpr).leq(c_right)) {
-            return FALSE_var; // the constraint is unsatisfable..
+    /**
+     * Creates a new assertion on the given variable, returning its controlling
+     * variable. The assertion is linked, through binary clauses, to the
+     * closest assertions on the same variable implying it and implied by it,
+     * so that propagating the strongest assertions is enough for propagating
+     * all of them.
+     */
+    private int new_assertion(final int x, final Assertion.Op op, final InfRational v) {
+        final int ctr = sat.newVar();
+        sat.bind(ctr, this);
+        final Assertion a = new Assertion(this, ctr, x, op, v);
+        v_asrts.put(ctr, a);
+        final Assertion stronger = a_watches[x].stronger(a);
+        if (stronger != null) {
+            sat.newLemma(new Lit(stronger.b, false), new Lit(ctr));
         }
+        final Assertion weaker = a_watches[x].weaker(a);
+        if (weaker != null) {
+            sat.newLemma(new Lit(ctr, false), new Lit(weaker.b));
+        }
+        return ctr;
+    }
 
-        final int slack = newVar(l_xpr);
-        return exprs.computeIntIfAbsent("x" + slack + " >= " + c_right.toString(), s_xpr -> {
-            final int ctr = sat.newVar();
-            sat.bind(ctr, this);
-            v_asrts.put(ctr, new Assertion(this, ctr, slack, Assertion.Op.GEq, c_right));
-            return ctr;
-        });
+    /**
+     * Returns the difference of the given linear expressions, in which basic
+     * variables are replaced by their tableau rows.
+     */
+    private Lin expr(final Lin left, final Lin right) {
+        final Lin l_xpr = left.minus(right);
+        final IntArrayList basics = new IntArrayList();
+        for (int i = 0; i < l_xpr.size(); i++) {
+            if (tableau[l_xpr.var(i)] != null) {
+                basics.add(l_xpr.var(i));
+            }
+        }
+        for (int i = 0; i < basics.size(); i++) {
+            l_xpr.addMul(tableau[basics.getInt(i)].lin(), l_xpr.remove(basics.getInt(i)));
+        }
+        return l_xpr;
     }
 
     /**
-     * Returns the current lower bound of variable 'v'.
+     * Returns a copy of the current lower bound of variable 'v'.
      *
      * @param v the variable whose lower bound we are interested in.
      * @return the lower bound of variable 'v'.
      */
     public InfRational lb(final int v) {
-        return bounds[lb_index(v)].value;
+        final InfRational lb = new InfRational();
+        bounds.get(lb_index(v), lb);
+        return lb;
     }
 
     /**
-     * Returns the current upper bound of variable 'v'.
+     * Returns a copy of the current upper bound of variable 'v'.
      *
      * @param v the variable whose upper bound we are interested in.
      * @return the upper bound of variable 'v'.
      */
     public InfRational ub(final int v) {
-        return bounds[ub_index(v)].value;
+        final InfRational ub = new InfRational();
+        bounds.get(ub_index(v), ub);
+        return ub;
     }
 
     /**
-     * Returns the current value of variable 'v'.
+     * Returns a copy of the current value of variable 'v'.
      *
      * @param v the variable whose value we are interested in.
      * @return the value of variable 'v'.
      */
     public InfRational value(final int v) {
-        return new InfRational(vals[v].rat, vals[v].inf);
+        final InfRational val = new InfRational();
+        vals.get(v, val);
+        return val;
     }
 
     /**
@@ -229,8 +288,8 @@ public class LRATheory implements Theory {
      */
     public InfRational lb(final Lin l) {
         InfRational v = new InfRational(l.known_term);
-        for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-            v.add((term.getValue().isPositive() ? lb(term.getIntKey()) : ub(term.getIntKey())).times(term.getValue()));
+        for (int i = 0; i < l.size(); i++) {
+            v.addMul(bound(l.coeff(i).isPositive() ? lb_index(l.var(i)) : ub_index(l.var(i))), l.coeff(i));
         }
         return v;
     }
@@ -243,8 +302,8 @@ public class LRATheory implements Theory {
      */
     public InfRational ub(final Lin l) {
         InfRational v = new InfRational(l.known_term);
-        for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-            v.add((term.getValue().isPositive() ? ub(term.getIntKey()) : lb(term.getIntKey())).times(term.getValue()));
+        for (int i = 0; i < l.size(); i++) {
+            v.addMul(bound(l.coeff(i).isPositive() ? ub_index(l.var(i)) : lb_index(l.var(i))), l.coeff(i));
         }
         return v;
     }
@@ -257,8 +316,9 @@ public class LRATheory implements Theory {
      */
     public InfRational value(final Lin l) {
         InfRational v = new InfRational(l.known_term);
-        for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-            v.add(value(term.getIntKey()).times(term.getValue()));
+        for (int i = 0; i < l.size(); i++) {
+            vals.get(l.var(i), c_val);
+            v.addMul(c_val, l.coeff(i));
         }
         return v;
     }
@@ -280,106 +340,557 @@ public class LRATheory implements Theory {
     @Override
     public boolean check(final List<Lit> cnfl) {
         assert cnfl.isEmpty();
+        int c_pivots = 0; // the number of pivots performed within this check..
+        final int c_bland_threshold = bland_threshold < 0 ? BLAND_ROWS_FACTOR * n_rows : bland_threshold;
         while (true) {
+            // after too many pivots, we switch to Bland's rule so as to avoid cycling..
+            final boolean bland = c_pivots >= c_bland_threshold;
             // we find a basic variable whose value is outside its bounds..
-            Optional<Int2ObjectMap.Entry<Row>> x_i = tableau.int2ObjectEntrySet().stream()
-                    .filter(row -> value(row.getIntKey()).lt(lb(row.getIntKey()))
-                            || value(row.getIntKey()).gt(ub(row.getIntKey())))
-                    .findFirst();
-            if (!x_i.isPresent()) {
+            final int x_i = leaving(bland ? RowRule.Bland : row_rule);
+            if (x_i < 0) {
+                if (cache_assignments) { // we cache the feasible assignment..
+                    feasible_vals.ensureCapacity(vals.capacity());
+                    feasible_vals.set(vals, n_vars);
+                    feasible_level = trail_lim.size();
+                }
                 return true;
             }
-            if (value(x_i.get().getIntKey()).lt(lb(x_i.get().getIntKey()))) {
-                // the current value is lower than the lower bound..
-                Optional<Int2ObjectMap.Entry<Rational>> x_j = x_i.get().getValue().l.vars.int2ObjectEntrySet().stream()
-                        .filter(term -> (term.getValue().isPositive()
-                                && value(term.getIntKey()).lt(ub(term.getIntKey())))
-                                || (term.getValue().isNegative() && value(term.getIntKey()).gt(lb(term.getIntKey()))))
-                        .findFirst();
-                if (x_j.isPresent()) {
-                    // var x_j can be used to increase the value of x_i..
-                    pivot_and_update(x_i.get().getIntKey(), x_j.get().getIntKey(),
-                            new InfRational(lb(x_i.get().getIntKey())));
-                } else {
-                    // we generate an explanation for the conflict..
-                    for (Int2ObjectMap.Entry<Rational> term : x_i.get().getValue().l.vars.int2ObjectEntrySet()) {
-                        if (term.getValue().isPositive()) {
-                            cnfl.add(bounds[ub_index(term.getIntKey())].reason.not());
-                        } else if (term.getValue().isNegative()) {
-                            cnfl.add(bounds[lb_index(term.getIntKey())].reason.not());
-                        }
-                    }
-                    cnfl.add(bounds[lb_index(x_i.get().getIntKey())].reason.not());
-                    return false;
+            final Row row = tableau[x_i];
+            // whether the value of 'x_i' is lower than its lower bound, and hence has to be increased..
+            final boolean increase = vals.lt(x_i, bound(lb_index(x_i)));
+            final int x_j = entering(row, increase, bland ? ColumnRule.Bland : column_rule);
+            if (x_j >= 0) {
+                // var x_j can be used to bring x_i within its bounds..
+                pivot_and_update(x_i, x_j, bound(increase ? lb_index(x_i) : ub_index(x_i)));
+                c_pivots++;
+            } else {
+                // we generate an explanation for the conflict..
+                explain(row, increase, cnfl);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Fills the given clause with the explanation of the infeasibility of the
+     * given row, whose basic variable cannot be increased (decreased) up to
+     * its lower (upper) bound. The coefficients of the row are the Farkas
+     * coefficients of the conflict: the bounds they weight sum up to a value
+     * which violates the bound of the basic variable by some slack. Such slack
+     * is spent, greedily, for replacing the reasons of the bounds with weaker
+     * true assertions which still make the row infeasible. Since weaker
+     * assertions are implied by stronger ones, they are assigned at the same,
+     * or at an earlier, decision level, so that the learned clause allows
+     * backjumping further. Reasons assigned at root level are left out of the
+     * explanation, since they are true regardless of the search.
+     */
+    private void explain(final Row row, final boolean increase, final List<Lit> cnfl) {
+        final InfRational slack = new InfRational(); // the violation of the bound of the basic variable..
+        for (Entry e = row.first; e != null; e = e.row_next) {
+            slack.addMul(bound(e.coeff.isPositive() == increase ? ub_index(e.var) : lb_index(e.var)), e.coeff);
+        }
+        if (increase) {
+            slack.negate();
+            slack.add(bound(lb_index(row.x)));
+        } else {
+            slack.sub(bound(ub_index(row.x)));
+        }
+        assert slack.gt(0);
+        for (Entry e = row.first; e != null; e = e.row_next) {
+            final Lit reason = weaken(e.var, e.coeff.isPositive() == increase, e.coeff, slack);
+            if (reason != null && sat.level(reason.v) > 0) {
+                cnfl.add(reason.not());
+            }
+        }
+        final Lit reason = weaken(row.x, !increase, ONE, slack);
+        if (reason != null && sat.level(reason.v) > 0) {
+            cnfl.add(reason.not());
+        }
+    }
+
+    /**
+     * Returns the reason for the upper (lower) bound of variable 'x', or the
+     * weakest assertion which replaces it without increasing, once multiplied
+     * by 'c', the sum of the bounds by the given slack or more. An upper
+     * (lower) bound is asserted either by a true {@code <=} ({@code >=})
+     * assertion or by a false {@code >=} ({@code <=}) one, hence both are
+     * candidates. The slack is reduced accordingly.
+     */
+    private Lit weaken(final int x, final boolean upper, final Rational c, final InfRational slack) {
+        final InfRational b = new InfRational(bound(upper ? ub_index(x) : lb_index(x)));
+        final Rational abs_c = c.isNegative() ? c.minus() : c;
+        Lit reason = reasons[upper ? ub_index(x) : lb_index(x)];
+        InfRational cost = null; // the cost of the chosen replacement..
+        if (upper) { // weaker upper bounds have greater values..
+            final ObjectArrayList<Assertion> leqs = a_watches[x].leqs;
+            for (int i = AssertionList.lower_bound(leqs, b); i < leqs.size(); i++) {
+                final InfRational c_cost = leqs.get(i).v.minus(b).times(abs_c);
+                if (!c_cost.lt(slack)) {
+                    break;
+                }
+                if (sat.value(leqs.get(i).b) == LBool.True) {
+                    reason = new Lit(leqs.get(i).b);
+                    cost = c_cost;
                 }
             }
-            if (value(x_i.get().getIntKey()).gt(ub(x_i.get().getIntKey()))) {
-                // the current value is greater than the upper bound..
-                Optional<Int2ObjectMap.Entry<Rational>> x_j = x_i.get().getValue().l.vars.int2ObjectEntrySet().stream()
-                        .filter(term -> (term.getValue().isNegative()
-                                && value(term.getIntKey()).lt(ub(term.getIntKey())))
-                                || (term.getValue().isPositive() && value(term.getIntKey()).gt(lb(term.getIntKey()))))
-                        .findFirst();
-                if (x_j.isPresent()) {
-                    // var x_j can be used to decrease the value of x_i..
-                    pivot_and_update(x_i.get().getIntKey(), x_j.get().getIntKey(),
-                            new InfRational(ub(x_i.get().getIntKey())));
-                } else {
-                    // we generate an explanation for the conflict..
-                    for (Int2ObjectMap.Entry<Rational> term : x_i.get().getValue().l.vars.int2ObjectEntrySet()) {
-                        if (term.getValue().isPositive()) {
-                            cnfl.add(bounds[lb_index(term.getIntKey())].reason.not());
-                        } else if (term.getValue().isNegative()) {
-                            cnfl.add(bounds[ub_index(term.getIntKey())].reason.not());
-                        }
+            final ObjectArrayList<Assertion> geqs = a_watches[x].geqs;
+            for (int i = AssertionList.lower_bound(geqs, b); i < geqs.size(); i++) {
+                final InfRational c_cost = geqs.get(i).v.minus(b).times(abs_c);
+                if (!c_cost.lt(slack)) {
+                    break;
+                }
+                if (sat.value(geqs.get(i).b) == LBool.False && (cost == null || c_cost.gt(cost))) {
+                    reason = new Lit(geqs.get(i).b, false);
+                    cost = c_cost;
+                }
+            }
+        } else { // weaker lower bounds have lower values..
+            final ObjectArrayList<Assertion> geqs = a_watches[x].geqs;
+            for (int i = AssertionList.upper_bound(geqs, b) - 1; i >= 0; i--) {
+                final InfRational c_cost = b.minus(geqs.get(i).v).times(abs_c);
+                if (!c_cost.lt(slack)) {
+                    break;
+                }
+                if (sat.value(geqs.get(i).b) == LBool.True) {
+                    reason = new Lit(geqs.get(i).b);
+                    cost = c_cost;
+                }
+            }
+            final ObjectArrayList<Assertion> leqs = a_watches[x].leqs;
+            for (int i = AssertionList.upper_bound(leqs, b) - 1; i >= 0; i--) {
+                final InfRational c_cost = b.minus(leqs.get(i).v).times(abs_c);
+                if (!c_cost.lt(slack)) {
+                    break;
+                }
+                if (sat.value(leqs.get(i).b) == LBool.False && (cost == null || c_cost.gt(cost))) {
+                    reason = new Lit(leqs.get(i).b, false);
+                    cost = c_cost;
+                }
+            }
+        }
+        if (cost != null) {
+            slack.sub(cost);
+        }
+        return reason;
+    }
+
+    /**
+     * Minimizes the given linear expression, through the primal simplex,
+     * starting from the current assignment, which must be feasible (i.e., the
+     * last check must have succeeded). The bounds are not changed, hence the
+     * optimal assignment, which is feasible as well, remains so after
+     * backtracking. Once the optimum is found, the given list is filled with
+     * the reasons of the bounds which explain it, i.e. whose conjunction
+     * implies that the linear expression is not lower than the optimum.
+     *
+     * @param l the linear expression to minimize.
+     * @param expl the list which will contain the reasons of the bounds
+     * explaining the optimum, left empty if the linear expression is
+     * unbounded.
+     * @return the minimum value of the linear expression, or negative infinity
+     * if the linear expression is unbounded.
+     */
+    public InfRational minimize(final Lin l, final List<Lit> expl) {
+        assert expl.isEmpty();
+        assert feasible() : "the current assignment should be feasible..";
+        // the objective function, expressed in terms of non-basic variables..
+        final Lin obj = expr(l, new Lin());
+        while (true) {
+            // we look for a non-basic variable whose change decreases the objective function (Bland's rule)..
+            int x_j = -1;
+            boolean increase = false;
+            for (int i = 0; i < obj.size(); i++) {
+                final int x = obj.var(i);
+                if (obj.coeff(i).isPositive() ? vals.gt(x, bound(lb_index(x))) : vals.lt(x, bound(ub_index(x)))) {
+                    x_j = x;
+                    increase = obj.coeff(i).isNegative();
+                    break;
+                }
+            }
+            if (x_j < 0) { // the objective function cannot be further decreased..
+                for (int i = 0; i < obj.size(); i++) {
+                    expl.add(reasons[obj.coeff(i).isPositive() ? lb_index(obj.var(i)) : ub_index(obj.var(i))]);
+                }
+                return value(obj);
+            }
+
+            // we look for the variable which first reaches one of its bounds..
+            int x_i = -1;
+            boolean x_i_lb = false; // whether 'x_i' reaches its lower bound..
+            final int j_bound = increase ? ub_index(x_j) : lb_index(x_j);
+            if (!bound(j_bound).rat.isInfinite()) {
+                vals.get(x_j, c_val);
+                min_step.set(c_bound);
+                min_step.sub(c_val);
+                if (min_step.rat.isNegative()) {
+                    min_step.negate();
+                }
+                x_i = x_j;
+                x_i_lb = !increase;
+            }
+            for (Entry e = cols[x_j].first; e != null; e = e.col_next) {
+                final int x_r = e.row.x;
+                // whether the basic variable decreases and might hence reach its lower bound..
+                final boolean decrease = e.coeff.isPositive() != increase;
+                if (bound(decrease ? lb_index(x_r) : ub_index(x_r)).rat.isInfinite()) {
+                    continue;
+                }
+                vals.get(x_r, c_val);
+                step.set(c_bound);
+                step.sub(c_val);
+                step.div(e.coeff);
+                if (step.rat.isNegative()) {
+                    step.negate();
+                }
+                if (x_i < 0 || step.lt(min_step) || (x_i != x_j && step.eq(min_step) && x_r < x_i)) {
+                    x_i = x_r;
+                    x_i_lb = decrease;
+                    min_step.set(step);
+                }
+            }
+
+            if (x_i < 0) { // the objective function is unbounded..
+                return new InfRational(NEGATIVE_INFINITY);
+            } else if (x_i == x_j) { // the entering variable reaches its other bound..
+                update(x_j, bound(j_bound));
+            } else {
+                pivot_and_update(x_i, x_j, bound(x_i_lb ? lb_index(x_i) : ub_index(x_i)));
+                obj.addMul(tableau[x_j].lin(), obj.remove(x_j));
+            }
+        }
+    }
+
+    /**
+     * Maximizes the given linear expression, through the primal simplex,
+     * starting from the current assignment, which must be feasible.
+     *
+     * @param l the linear expression to maximize.
+     * @param expl the list which will contain the reasons of the bounds
+     * explaining the optimum, left empty if the linear expression is
+     * unbounded.
+     * @return the maximum value of the linear expression, or positive infinity
+     * if the linear expression is unbounded.
+     * @see #minimize(Lin, List)
+     */
+    public InfRational maximize(final Lin l, final List<Lit> expl) {
+        final InfRational max = minimize(l.minus(), expl);
+        max.negate();
+        return max;
+    }
+
+    /**
+     * Sets the rules used by the simplex for choosing the leaving and the
+     * entering variables of each pivot. Once more than {@code bland_threshold}
+     * pivots are performed within a single check, Bland's rule is used for
+     * both choices, guaranteeing termination. By default, the threshold is
+     * four times the number of rows of the tableau.
+     *
+     * @param row_rule the rule for choosing the leaving (basic) variable.
+     * @param column_rule the rule for choosing the entering (non-basic)
+     * variable.
+     * @param bland_threshold the number of pivots after which Bland's rule is
+     * used, or a negative value for the default threshold.
+     */
+    public void setPivotRules(final RowRule row_rule, final ColumnRule column_rule, final int bland_threshold) {
+        this.row_rule = row_rule;
+        this.column_rule = column_rule;
+        this.bland_threshold = bland_threshold;
+    }
+
+    /**
+     * Enables (or disables) the caching of the last feasible assignment. Once
+     * enabled, each successful check copies the current assignment and, on
+     * backtracking, the copy replaces the current assignment if the latter
+     * might violate the (relaxed) bounds, so that the next check starts from
+     * a feasible point. Since the assignment satisfies the tableau regardless
+     * of the basis, the basis is left untouched.
+     *
+     * @param cache_assignments whether the last feasible assignment should be
+     * cached.
+     */
+    public void setAssignmentCaching(final boolean cache_assignments) {
+        this.cache_assignments = cache_assignments;
+        this.feasible_level = -1;
+    }
+
+    /**
+     * Checks, for debugging purposes, whether the values of all the variables
+     * are within their bounds, without changing the heap of the infeasible
+     * variables nor the statistics.
+     */
+    private boolean feasible() {
+        for (int v = 0; v < n_vars; v++) {
+            if (vals.lt(v, bound(lb_index(v))) || vals.gt(v, bound(ub_index(v)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns, according to the given rule, a basic variable whose value is
+     * outside its bounds, or {@code -1} if there is none.
+     */
+    private int leaving(final RowRule rule) {
+        if (rule != heap_rule) {
+            // we sort the heap according to the new rule..
+            heap_rule = rule;
+            for (int i = (heap_size >>> 1) - 1; i >= 0; i--) {
+                sift_down(i);
+            }
+        }
+        if (heap_size == 0) {
+            assert feasible() : "the current assignment should be feasible..";
+            return -1;
+        }
+        n_rows_scanned++;
+        return heap[0];
+    }
+
+    /**
+     * Adds the basic variable 'x' to the heap if its value is outside its
+     * bounds, moving it according to its violation if already there, or
+     * removes it from the heap if its value is within its bounds or if it is
+     * no more basic. To be called whenever the value or a bound of 'x'
+     * changes.
+     */
+    private void refresh(final int x) {
+        if (tableau[x] != null && vals.lt(x, bound(lb_index(x)))) {
+            vals.get(x, c_val);
+            viols[x].set(c_bound);
+            viols[x].sub(c_val);
+        } else if (tableau[x] != null && vals.gt(x, bound(ub_index(x)))) {
+            vals.get(x, viols[x]);
+            viols[x].sub(c_bound);
+        } else {
+            if (heap_pos[x] >= 0) {
+                heap_remove(x);
+            }
+            return;
+        }
+        if (heap_pos[x] < 0) {
+            heap_pos[x] = heap_size;
+            heap[heap_size++] = x;
+        }
+        sift_up(heap_pos[x]);
+        sift_down(heap_pos[x]);
+    }
+
+    private void heap_remove(final int x) {
+        final int i = heap_pos[x];
+        heap_pos[x] = -1;
+        final int last = heap[--heap_size];
+        if (i < heap_size) {
+            heap[i] = last;
+            heap_pos[last] = i;
+            sift_up(i);
+            sift_down(heap_pos[last]);
+        }
+    }
+
+    private void heap_clear() {
+        while (heap_size > 0) {
+            heap_pos[heap[--heap_size]] = -1;
+        }
+    }
+
+    private void sift_up(int i) {
+        final int x = heap[i];
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (!before(x, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heap_pos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = x;
+        heap_pos[x] = i;
+    }
+
+    private void sift_down(int i) {
+        final int x = heap[i];
+        while (true) {
+            int child = (i << 1) + 1;
+            if (child >= heap_size) {
+                break;
+            }
+            if (child + 1 < heap_size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], x)) {
+                break;
+            }
+            heap[i] = heap[child];
+            heap_pos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = x;
+        heap_pos[x] = i;
+    }
+
+    /**
+     * Checks whether the infeasible variable 'x' precedes the infeasible
+     * variable 'y' according to the rule of the heap, ties being broken by
+     * the lowest index.
+     */
+    private boolean before(final int x, final int y) {
+        switch (heap_rule) {
+        case Bland:
+            return x < y;
+        case LeastViolated:
+            return viols[x].lt(viols[y]) || (viols[x].eq(viols[y]) && x < y);
+        case MostViolated:
+            return viols[x].gt(viols[y]) || (viols[x].eq(viols[y]) && x < y);
+        default:
+            throw new AssertionError(heap_rule.name());
+        }
+    }
+
+    /**
+     * Returns, according to the given rule, a non-basic variable of the given
+     * row which can be used for increasing (decreasing) the value of the basic
+     * variable, or {@code -1} if there is none.
+     */
+    private int entering(final Row row, final boolean increase, final ColumnRule rule) {
+        int x_j = -1;
+        for (Entry e = row.first; e != null; e = e.row_next) {
+            final int x = e.var;
+            if (e.coeff.isPositive() == increase ? vals.lt(x, bound(ub_index(x))) : vals.gt(x, bound(lb_index(x)))) {
+                switch (rule) {
+                case Bland: // the entries are not sorted, hence we look for the variable with the lowest index..
+                    if (x_j < 0 || x < x_j) {
+                        x_j = x;
                     }
-                    cnfl.add(bounds[ub_index(x_i.get().getIntKey())].reason.not());
-                    return false;
+                    break;
+                case FewestOccurrences:
+                    if (x_j < 0 || cols[x].size < cols[x_j].size) {
+                        x_j = x;
+                    }
+                    break;
+                default:
+                    throw new AssertionError(rule.name());
                 }
             }
         }
+        return x_j;
     }
 
     @Override
     public void push() {
-        layers.addFirst(new Int2ObjectOpenHashMap<>());
+        trail_lim.add(trail_size);
     }
 
     @Override
     public void pop() {
-        // we restore the variables' bounds and their reason..
-        for (Int2ObjectMap.Entry<Bound> bound : layers.pollFirst().int2ObjectEntrySet()) {
-            bounds[bound.getIntKey()] = bound.getValue();
+        // we restore the variables' bounds and their reason, in reverse chronological order..
+        final int lim = trail_lim.popInt();
+        while (trail_size > lim) {
+            trail_size--;
+            final int i = trail[trail_size];
+            final int v = i >>> 1;
+            bounds.get(i, c_bound);
+            trail_vals.get(trail_size, p_bound);
+            // ..and the implied bounds of the rows containing the variable..
+            for (Entry e = cols[v].first; e != null; e = e.col_next) {
+                if (i == lb_index(v)) {
+                    e.row.update_lb(e.coeff, c_bound, p_bound);
+                } else {
+                    e.row.update_ub(e.coeff, c_bound, p_bound);
+                }
+            }
+            bounds.set(i, p_bound);
+            reasons[i] = trail_reasons[trail_size];
+            trail_reasons[trail_size] = null;
+            if (heap_pos[v] >= 0) { // the relaxed bound might be no more violated..
+                refresh(v);
+            }
+        }
+
+        // the bounds of the remaining levels are still satisfied by the cached assignment..
+        feasible_level = Math.min(feasible_level, trail_lim.size());
+        if (feasible_level == trail_lim.size() && heap_size > 0) {
+            // the current assignment violates some bounds, hence we restore the cached one..
+            vals.set(feasible_vals, n_vars);
+            heap_clear();
+            n_restores++;
         }
     }
 
+    /**
+     * Records, if not at root level, the current value and reason of the
+     * {@code i}-th bound into the trail, so as to restore them on
+     * backtracking. To be called right before changing the bound.
+     */
+    private void save(final int i) {
+        // the cached assignment might violate the new bound..
+        feasible_level = Math.min(feasible_level, trail_lim.size() - 1);
+        if (trail_lim.isEmpty()) {
+            return; // root level bounds are never restored..
+        }
+        if (trail_size == trail.length) {
+            final int capacity = (trail.length * 3) / 2 + 1;
+            int[] c_trail = new int[capacity];
+            System.arraycopy(trail, 0, c_trail, 0, trail.length);
+            trail = c_trail;
+            trail_vals.ensureCapacity(capacity);
+            Lit[] c_reasons = new Lit[capacity];
+            System.arraycopy(trail_reasons, 0, c_reasons, 0, trail_reasons.length);
+            trail_reasons = c_reasons;
+        }
+        trail[trail_size] = i;
+        trail_vals.set(trail_size, bounds, i);
+        trail_reasons[trail_size] = reasons[i];
+        trail_size++;
+    }
+
+    /**
+     * Returns the {@code i}-th bound into a scratch value, valid until the
+     * next call.
+     */
+    private InfRational bound(final int i) {
+        bounds.get(i, c_bound);
+        return c_bound;
+    }
+
     private boolean assert_lower(final int x_i, final InfRational val, final Lit p, final List<Lit> cnfl) {
         assert cnfl.isEmpty();
-        if (val.leq(lb(x_i))) {
+        if (!bounds.lt(lb_index(x_i), val)) {
             return true;
-        } else if (val.gt(ub(x_i))) {
+        } else if (bounds.lt(ub_index(x_i), val)) {
             cnfl.add(p.not()); // either the literal 'p' is false ..
-            cnfl.add(bounds[ub_index(x_i)].reason.not()); // or what asserted the upper bound is false..
+            cnfl.add(reasons[ub_index(x_i)].not()); // or what asserted the upper bound is false..
             return false;
         } else {
-            if (!layers.isEmpty() && !layers.peekFirst().containsKey(lb_index(x_i))) {
-                layers.peekFirst().put(lb_index(x_i), new Bound(lb(x_i), bounds[lb_index(x_i)].reason));
+            save(lb_index(x_i));
+            bounds.get(lb_index(x_i), p_bound);
+            bounds.set(lb_index(x_i), val);
+            reasons[lb_index(x_i)] = p;
+            for (Entry e = cols[x_i].first; e != null; e = e.col_next) {
+                e.row.update_lb(e.coeff, p_bound, val);
             }
-            bounds[lb_index(x_i)] = new Bound(val, p);
 
-            if (vals[x_i].lt(val) && !tableau.containsKey(x_i)) {
-                update(x_i, val);
+            if (vals.lt(x_i, val)) {
+                if (tableau[x_i] != null) {
+                    refresh(x_i);
+                } else {
+                    update(x_i, val);
+                }
             }
 
-            // unate propagation..
-            for (Assertion c : a_watches[x_i]) {
-                if (!c.propagate_lb(x_i, cnfl)) {
-                    return false;
-                }
+            // unate propagation, the weaker assertions being implied through binary clauses..
+            final Assertion falsified = a_watches[x_i].falsified_by_lb(val);
+            if (falsified != null && !falsified.propagate_lb(x_i, cnfl)) {
+                return false;
+            }
+            final Assertion satisfied = a_watches[x_i].satisfied_by_lb(val);
+            if (satisfied != null && !satisfied.propagate_lb(x_i, cnfl)) {
+                return false;
             }
             // bound propagation..
-            for (Row c : t_watches[x_i]) {
-                if (!c.propagate_lb(x_i, cnfl)) {
+            for (Entry e = cols[x_i].first; e != null; e = e.col_next) {
+                if (!e.row.propagate_lb(e.coeff, cnfl)) {
                     return false;
                 }
             }
@@ -390,31 +901,41 @@ public class LRATheory implements Theory {
 
     private boolean assert_upper(final int x_i, final InfRational val, final Lit p, final List<Lit> cnfl) {
         assert cnfl.isEmpty();
-        if (val.geq(ub(x_i))) {
+        if (!bounds.gt(ub_index(x_i), val)) {
             return true;
-        } else if (val.lt(lb(x_i))) {
+        } else if (bounds.gt(lb_index(x_i), val)) {
             cnfl.add(p.not()); // either the literal 'p' is false ..
-            cnfl.add(bounds[lb_index(x_i)].reason.not()); // or what asserted the lower bound is false..
+            cnfl.add(reasons[lb_index(x_i)].not()); // or what asserted the lower bound is false..
             return false;
         } else {
-            if (!layers.isEmpty() && !layers.peekFirst().containsKey(ub_index(x_i))) {
-                layers.peekFirst().put(ub_index(x_i), new Bound(ub(x_i), bounds[ub_index(x_i)].reason));
+            save(ub_index(x_i));
+            bounds.get(ub_index(x_i), p_bound);
+            bounds.set(ub_index(x_i), val);
+            reasons[ub_index(x_i)] = p;
+            for (Entry e = cols[x_i].first; e != null; e = e.col_next) {
+                e.row.update_ub(e.coeff, p_bound, val);
             }
-            bounds[ub_index(x_i)] = new Bound(val, p);
 
-            if (vals[x_i].gt(val) && !tableau.containsKey(x_i)) {
-                update(x_i, val);
+            if (vals.gt(x_i, val)) {
+                if (tableau[x_i] != null) {
+                    refresh(x_i);
+                } else {
+                    update(x_i, val);
+                }
             }
 
-            // unate propagation..
-            for (Assertion c : a_watches[x_i]) {
-                if (!c.propagate_ub(x_i, cnfl)) {
-                    return false;
-                }
+            // unate propagation, the weaker assertions being implied through binary clauses..
+            final Assertion falsified = a_watches[x_i].falsified_by_ub(val);
+            if (falsified != null && !falsified.propagate_ub(x_i, cnfl)) {
+                return false;
+            }
+            final Assertion satisfied = a_watches[x_i].satisfied_by_ub(val);
+            if (satisfied != null && !satisfied.propagate_ub(x_i, cnfl)) {
+                return false;
             }
             // bound propagation..
-            for (Row c : t_watches[x_i]) {
-                if (!c.propagate_ub(x_i, cnfl)) {
+            for (Entry e = cols[x_i].first; e != null; e = e.col_next) {
+                if (!e.row.propagate_ub(e.coeff, cnfl)) {
                     return false;
                 }
             }
@@ -424,94 +945,280 @@ public class LRATheory implements Theory {
     }
 
     private void update(final int x_i, final InfRational v) {
-        assert !tableau.containsKey(x_i) : "x_i should be a non-basic variable..";
-        for (Row row : t_watches[x_i]) {
+        assert tableau[x_i] == null : "x_i should be a non-basic variable..";
+        // v - x_i..
+        vals.get(x_i, c_val);
+        delta.set(v);
+        delta.sub(c_val);
+        for (Entry e = cols[x_i].first; e != null; e = e.col_next) {
             // x_j = x_j + a_ji(v - x_i)..
-            vals[row.x].add(v.minus(vals[x_i]).times(row.l.vars.get(x_i)));
+            vals.addMul(e.row.x, delta, e.coeff);
+            refresh(e.row.x);
         }
         // x_i = v..
-        vals[x_i] = new InfRational(v);
+        vals.set(x_i, v);
     }
 
     private void pivot_and_update(final int x_i, final int x_j, final InfRational v) {
-        assert tableau.containsKey(x_i) : "x_i should be a basic variable..";
-        assert !tableau.containsKey(x_j) : "x_j should be a non-basic variable..";
-        assert tableau.get(x_i).l.vars.containsKey(x_j);
-
-        final InfRational theta = v.minus(vals[x_i]).divide(tableau.get(x_i).l.vars.get(x_j));
+        assert tableau[x_i] != null : "x_i should be a basic variable..";
+        assert tableau[x_j] == null : "x_j should be a non-basic variable..";
+        assert tableau[x_i].entry(x_j) != null;
+
+        // theta = (v - x_i) / a_ij..
+        final InfRational theta = delta;
+        vals.get(x_i, c_val);
+        theta.set(v);
+        theta.sub(c_val);
+        theta.div(tableau[x_i].entry(x_j).coeff);
         assert !theta.rat.isInfinite();
 
         // x_i = v
-        vals[x_i] = new InfRational(v);
+        vals.set(x_i, v);
 
         // x_j += theta
-        vals[x_j].add(theta);
-        for (Row row : t_watches[x_j]) {
-            if (row.x != x_i) {
+        vals.add(x_j, theta);
+        for (Entry e = cols[x_j].first; e != null; e = e.col_next) {
+            if (e.row.x != x_i) {
                 // x_k += a_kj * theta..
-                vals[row.x].add(theta.times(row.l.vars.get(x_j)));
+                vals.addMul(e.row.x, theta, e.coeff);
+                refresh(e.row.x);
             }
         }
 
         pivot(x_i, x_j);
+        // 'x_i' leaves the basis with a value within its bounds while 'x_j' enters it..
+        refresh(x_i);
+        refresh(x_j);
     }
 
     private void pivot(final int x_i, final int x_j) {
-        // the exiting row..
-        Row row = tableau.remove(x_i);
-        for (Int2ObjectMap.Entry<Rational> term : row.l.vars.int2ObjectEntrySet()) {
-            t_watches[term.getIntKey()].remove(row);
+        final PivotEvent event = new PivotEvent();
+        event.begin();
+        n_pivots++;
+        // the exiting row becomes the row of 'x_j'..
+        final Row row = tableau[x_i];
+        tableau[x_i] = null;
+
+        // x_j = (x_i - a_ik * x_k - b_i) / a_ij..
+        final Entry e_ij = row.entry(x_j);
+        unlink(e_ij);
+        pivot_coeff.set(e_ij.coeff);
+        pivot_coeff.negate();
+        for (Entry e = row.first; e != null; e = e.row_next) {
+            e.coeff.div(pivot_coeff);
+        }
+        row.known_term.div(pivot_coeff);
+        // the entry of 'x_j' is reused for 'x_i', whose coefficient is 1 / a_ij..
+        e_ij.var = x_i;
+        e_ij.coeff.set(1);
+        e_ij.coeff.div(pivot_coeff);
+        e_ij.coeff.negate();
+        link(e_ij);
+        row.x = x_j;
+        row.init();
+        tableau[x_j] = row;
+
+        // we replace 'x_j' within the other rows, touching only the changing entries..
+        for (Entry e = cols[x_j].first; e != null;) {
+            final Entry next = e.col_next;
+            unlink(e);
+            substitute(e.row, row, e.coeff);
+            e.row.init();
+            release(e);
+            e = next;
         }
 
-        final Lin xpr = row.l;
-        final Rational c = xpr.vars.remove(x_j);
-        xpr.div(c.minus());
-        xpr.vars.put(x_i, new Rational(1).divide(c));
+        if (event.shouldCommit()) {
+            event.leaving = x_i;
+            event.entering = x_j;
+            event.rows = cols[x_i].size - 1; // the rows now containing 'x_i', except the new one..
+            event.commit();
+        }
+    }
 
-        for (Row r : t_watches[x_j].toArray(new Row[t_watches[x_j].size()])) {
-            for (Int2ObjectMap.Entry<Rational> term : row.l.vars.int2ObjectEntrySet()) {
-                t_watches[term.getIntKey()].remove(r);
-            }
-            r.l.add(xpr.times(r.l.vars.remove(x_j)));
-            for (Int2ObjectMap.Entry<Rational> term : row.l.vars.int2ObjectEntrySet()) {
-                t_watches[term.getIntKey()].add(r);
+    /**
+     * Adds to row {@code r} the terms of row {@code row} multiplied by
+     * {@code c}. The entries of {@code r} are scattered into the work array,
+     * so that the entries which change are found without searching.
+     */
+    private void substitute(final Row r, final Row row, final Rational c) {
+        for (Entry e = r.first; e != null; e = e.row_next) {
+            work[e.var] = e;
+        }
+        for (Entry f = row.first; f != null; f = f.row_next) {
+            final Entry e = work[f.var];
+            if (e != null) {
+                work[f.var] = null;
+                e.coeff.addMul(f.coeff, c);
+                if (e.coeff.eq(0)) { // the entry vanishes..
+                    unlink(e);
+                    release(e);
+                }
+            } else { // a new entry (fill-in)..
+                final Entry n = new_entry(r, f.var);
+                n.coeff.set(f.coeff);
+                n.coeff.mult(c);
+                link(n);
             }
         }
+        for (Entry e = r.first; e != null; e = e.row_next) {
+            work[e.var] = null;
+        }
+        r.known_term.addMul(row.known_term, c);
+    }
 
-        // we add a new row into the tableau..
-        tableau.put(x_j, new Row(this, x_j, xpr));
+    /**
+     * Returns an entry for the variable 'var' of the row 'r', reusing, if
+     * possible, a removed one. The coefficient is left to the caller.
+     */
+    private Entry new_entry(final Row r, final int var) {
+        final Entry e = free_entries;
+        if (e == null) {
+            return new Entry(r, var, new Rational());
+        }
+        free_entries = e.row_next;
+        e.row = r;
+        e.var = var;
+        return e;
     }
 
-    private void ensureCapacity(final int minCapacity) {
-        int capacity = vals.length;
-        while (minCapacity > capacity) {
-            capacity = (capacity * 3) / 2 + 1;
-            if (minCapacity < capacity) {
-                Bound[] c_bounds = new Bound[capacity << 1];
-                System.arraycopy(bounds, 0, c_bounds, 0, bounds.length);
-                bounds = c_bounds;
+    /**
+     * Makes the given, already unlinked, entry available for being reused.
+     */
+    private void release(final Entry e) {
+        e.row = null;
+        e.row_prev = null;
+        e.col_prev = null;
+        e.col_next = null;
+        e.row_next = free_entries;
+        free_entries = e;
+    }
+
+    /**
+     * Links the given entry into its row and into its column.
+     */
+    void link(final Entry e) {
+        final Row r = e.row;
+        e.row_prev = null;
+        e.row_next = r.first;
+        if (r.first != null) {
+            r.first.row_prev = e;
+        }
+        r.first = e;
+        r.size++;
+
+        final Column col = cols[e.var];
+        e.col_prev = null;
+        e.col_next = col.first;
+        if (col.first != null) {
+            col.first.col_prev = e;
+        }
+        col.first = e;
+        col.size++;
+    }
+
+    /**
+     * Unlinks the given entry from its row and from its column.
+     */
+    private void unlink(final Entry e) {
+        final Row r = e.row;
+        if (e.row_prev != null) {
+            e.row_prev.row_next = e.row_next;
+        } else {
+            r.first = e.row_next;
+        }
+        if (e.row_next != null) {
+            e.row_next.row_prev = e.row_prev;
+        }
+        r.size--;
+
+        final Column col = cols[e.var];
+        if (e.col_prev != null) {
+            e.col_prev.col_next = e.col_next;
+        } else {
+            col.first = e.col_next;
+        }
+        if (e.col_next != null) {
+            e.col_next.col_prev = e.col_prev;
+        }
+        col.size--;
+    }
 
-                InfRational[] c_vals = new InfRational[capacity];
-                System.arraycopy(vals, 0, c_vals, 0, vals.length);
-                vals = c_vals;
+    /**
+     * Returns the number of pivots performed so far.
+     *
+     * @return the number of pivots performed so far.
+     */
+    public long pivots() {
+        return n_pivots;
+    }
 
-                AssertionList[] c_assertions = new AssertionList[capacity];
-                System.arraycopy(a_watches, 0, c_assertions, 0, a_watches.length);
-                a_watches = c_assertions;
+    /**
+     * Returns the number of times the cached feasible assignment has been
+     * restored on backtracking.
+     *
+     * @return the number of restored assignments.
+     */
+    public long restores() {
+        return n_restores;
+    }
+
+    /**
+     * Returns the number of infeasible basic variables chosen so far for
+     * leaving the basis. Since the infeasible basic variables are kept into a
+     * heap, this is also the number of tableau rows examined so far.
+     *
+     * @return the number of tableau rows examined so far.
+     */
+    public long rowsScanned() {
+        return n_rows_scanned;
+    }
 
-                RowSet[] c_rows = new RowSet[capacity];
-                System.arraycopy(t_watches, 0, c_rows, 0, t_watches.length);
-                t_watches = c_rows;
+    private void ensureCapacity(final int minCapacity) {
+        int capacity = vals.capacity();
+        if (minCapacity > capacity) {
+            while (minCapacity > capacity) {
+                capacity = (capacity * 3) / 2 + 1;
             }
+
+            bounds.ensureCapacity(capacity << 1);
+            Lit[] c_reasons = new Lit[capacity << 1];
+            System.arraycopy(reasons, 0, c_reasons, 0, reasons.length);
+            reasons = c_reasons;
+
+            vals.ensureCapacity(capacity);
+
+            AssertionList[] c_assertions = new AssertionList[capacity];
+            System.arraycopy(a_watches, 0, c_assertions, 0, a_watches.length);
+            a_watches = c_assertions;
+
+            Column[] c_cols = new Column[capacity];
+            System.arraycopy(cols, 0, c_cols, 0, cols.length);
+            cols = c_cols;
+            work = new Entry[capacity];
+
+            Row[] c_tableau = new Row[capacity];
+            System.arraycopy(tableau, 0, c_tableau, 0, tableau.length);
+            tableau = c_tableau;
+
+            int[] c_heap = new int[capacity];
+            System.arraycopy(heap, 0, c_heap, 0, heap.length);
+            heap = c_heap;
+            int[] c_heap_pos = new int[capacity];
+            System.arraycopy(heap_pos, 0, c_heap_pos, 0, heap_pos.length);
+            heap_pos = c_heap_pos;
+            InfRational[] c_viols = new InfRational[capacity];
+            System.arraycopy(viols, 0, c_viols, 0, viols.length);
+            viols = c_viols;
         }
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < vals.length; i++) {
-            sb.append("x").append(i).append(": [").append(bounds[lb_index(i)].value).append(", ")
-                    .append(bounds[ub_index(i)].value).append("] ").append(vals[i]).append('\n');
+        for (int i = 0; i < n_vars; i++) {
+            sb.append("x").append(i).append(": [").append(lb(i)).append(", ").append(ub(i)).append("] ")
+                    .append(value(i)).append('\n');
         }
         return sb.toString();
     }
@@ -525,22 +1232,165 @@ public class LRATheory implements Theory {
     }
 
     /**
-     * Represents a bound of a variable and the reason for its existence.
+     * The assertions on a variable, kept sorted by value, separately for the
+     * {@code <=} and the {@code >=} assertions, so that the strongest
+     * assertions made true or false by a new bound are found by binary
+     * search.
      */
-    static class Bound {
+    static class AssertionList {
 
-        final InfRational value; // the value of the bound..
-        final Lit reason; // the reason for the value..
+        private final ObjectArrayList<Assertion> leqs = new ObjectArrayList<>(); // the '<=' assertions, by increasing value..
+        private final ObjectArrayList<Assertion> geqs = new ObjectArrayList<>(); // the '>=' assertions, by increasing value..
 
-        private Bound(InfRational value, Lit reason) {
-            this.value = new InfRational(value);
-            this.reason = reason;
+        void add(final Assertion a) {
+            final ObjectArrayList<Assertion> as = a.op == Assertion.Op.LEq ? leqs : geqs;
+            as.add(lower_bound(as, a.v), a);
         }
+
+        /**
+         * Returns the assertion with the given operator and value, or
+         * {@code null} if there is none.
+         */
+        Assertion get(final Assertion.Op op, final InfRational v) {
+            final ObjectArrayList<Assertion> as = op == Assertion.Op.LEq ? leqs : geqs;
+            final int i = lower_bound(as, v);
+            return i < as.size() && as.get(i).v.eq(v) ? as.get(i) : null;
+        }
+
+        /**
+         * Returns the closest assertion which is implied by the given one, or
+         * {@code null} if there is none.
+         */
+        Assertion weaker(final Assertion a) {
+            final ObjectArrayList<Assertion> as = a.op == Assertion.Op.LEq ? leqs : geqs;
+            final int i = lower_bound(as, a.v) + (a.op == Assertion.Op.LEq ? 1 : -1);
+            return i >= 0 && i < as.size() ? as.get(i) : null;
+        }
+
+        /**
+         * Returns the closest assertion which implies the given one, or
+         * {@code null} if there is none.
+         */
+        Assertion stronger(final Assertion a) {
+            final ObjectArrayList<Assertion> as = a.op == Assertion.Op.LEq ? leqs : geqs;
+            final int i = lower_bound(as, a.v) + (a.op == Assertion.Op.LEq ? -1 : 1);
+            return i >= 0 && i < as.size() ? as.get(i) : null;
+        }
+
+        /**
+         * Returns the strongest assertion made false by the lower bound
+         * {@code lb}, i.e. the {@code x <= v} assertion with the greatest
+         * {@code v < lb}, or {@code null} if there is none.
+         */
+        Assertion falsified_by_lb(final InfRational lb) {
+            final int i = lower_bound(leqs, lb) - 1;
+            return i >= 0 ? leqs.get(i) : null;
+        }
+
+        /**
+         * Returns the strongest assertion made true by the lower bound
+         * {@code lb}, i.e. the {@code x >= v} assertion with the greatest
+         * {@code v <= lb}, or {@code null} if there is none.
+         */
+        Assertion satisfied_by_lb(final InfRational lb) {
+            final int i = upper_bound(geqs, lb) - 1;
+            return i >= 0 ? geqs.get(i) : null;
+        }
+
+        /**
+         * Returns the strongest assertion made false by the upper bound
+         * {@code ub}, i.e. the {@code x >= v} assertion with the least
+         * {@code v > ub}, or {@code null} if there is none.
+         */
+        Assertion falsified_by_ub(final InfRational ub) {
+            final int i = upper_bound(geqs, ub);
+            return i < geqs.size() ? geqs.get(i) : null;
+        }
+
+        /**
+         * Returns the strongest assertion made true by the upper bound
+         * {@code ub}, i.e. the {@code x <= v} assertion with the least
+         * {@code v >= ub}, or {@code null} if there is none.
+         */
+        Assertion satisfied_by_ub(final InfRational ub) {
+            final int i = lower_bound(leqs, ub);
+            return i < leqs.size() ? leqs.get(i) : null;
+        }
+
+        /**
+         * Returns the index of the first assertion whose value is not lower
+         * than {@code v}.
+         */
+        private static int lower_bound(final ObjectArrayList<Assertion> as, final InfRational v) {
+            int lo = 0, hi = as.size();
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (as.get(mid).v.lt(v)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Returns the index of the first assertion whose value is greater than
+         * {@code v}.
+         */
+        private static int upper_bound(final ObjectArrayList<Assertion> as, final InfRational v) {
+            int lo = 0, hi = as.size();
+            while (lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (as.get(mid).v.leq(v)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * A column of the tableau, linking the entries of a variable.
+     */
+    static class Column {
+
+        Entry first; // the first entry of the column..
+        int size = 0; // the number of entries of the column..
     }
 
-    static class AssertionList extends ObjectArrayList<Assertion> {
+    /**
+     * The rules for choosing the leaving (basic) variable of a pivot.
+     */
+    public enum RowRule {
+        /**
+         * The variable having the lowest index.
+         */
+        Bland,
+        /**
+         * The variable whose value is the closest to its bounds.
+         */
+        LeastViolated,
+        /**
+         * The variable whose value is the farthest from its bounds.
+         */
+        MostViolated
     }
 
-    static class RowSet extends ObjectOpenHashSet<Row> {
+    /**
+     * The rules for choosing the entering (non-basic) variable of a pivot.
+     */
+    public enum ColumnRule {
+        /**
+         * The variable having the lowest index.
+         */
+        Bland,
+        /**
+         * The variable appearing in the fewest tableau rows, so as to limit
+         * the fill-in of the tableau.
+         */
+        FewestOccurrences
     }
 }
@@ -16,17 +16,27 @@
  */
 package it.cnr.istc.pst.semitone.lra;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectAVLTreeMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMap;
+import java.util.Arrays;
 
 /**
+ * This class is used for representing linear expressions. Terms are stored as
+ * a sparse vector: an array of variables, sorted in increasing order, and a
+ * parallel array of (non-zero) coefficients, so that iterating over the terms
+ * is a sequential scan and sums of expressions are computed by merging.
+ * Expressions having many terms are more conveniently created through a
+ * {@link Builder}.
  *
  * @author Riccardo De Benedictis
  */
 public class Lin {
 
-    public final Int2ObjectSortedMap<Rational> vars = new Int2ObjectAVLTreeMap<>();
+    private static final int[] EMPTY_VARS = new int[0];
+    private static final Rational[] EMPTY_COEFFS = new Rational[0];
+    private static final Rational ONE = new Rational(1);
+    private static final Rational MINUS_ONE = new Rational(-1);
+    private int[] vars = EMPTY_VARS; // the variables, in increasing order..
+    private Rational[] coeffs = EMPTY_COEFFS; // the coefficients of the variables..
+    private int size = 0; // the number of terms..
     public Rational known_term;
 
     public Lin() {
@@ -34,8 +44,7 @@ public class Lin {
     }
 
     public Lin(final int v) {
-        vars.put(v, new Rational(1));
-        this.known_term = new Rational();
+        this(v, new Rational(1));
     }
 
     public Lin(final Rational known_term) {
@@ -43,46 +52,161 @@ public class Lin {
     }
 
     public Lin(final int v, final Rational c) {
-        vars.put(v, c);
+        this.vars = new int[] { v };
+        this.coeffs = new Rational[] { c };
+        this.size = 1;
         this.known_term = new Rational();
     }
 
+    public Lin(final Lin l) {
+        this.vars = Arrays.copyOf(l.vars, l.size);
+        this.coeffs = new Rational[l.size];
+        for (int i = 0; i < l.size; i++) {
+            coeffs[i] = new Rational(l.coeffs[i]);
+        }
+        this.size = l.size;
+        this.known_term = new Rational(l.known_term);
+    }
+
+    /**
+     * Returns the number of terms of this linear expression.
+     *
+     * @return the number of terms of this linear expression.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the variable of the {@code i}-th term. Terms are sorted by
+     * increasing variable.
+     *
+     * @param i the index of the term.
+     * @return the variable of the {@code i}-th term.
+     */
+    public int var(final int i) {
+        assert i < size;
+        return vars[i];
+    }
+
+    /**
+     * Returns the coefficient of the {@code i}-th term.
+     *
+     * @param i the index of the term.
+     * @return the coefficient of the {@code i}-th term.
+     */
+    public Rational coeff(final int i) {
+        assert i < size;
+        return coeffs[i];
+    }
+
+    /**
+     * Returns the coefficient of variable {@code v}.
+     *
+     * @param v the variable whose coefficient we are interested in.
+     * @return the coefficient of variable {@code v} or {@code null} if
+     * {@code v} does not appear in this linear expression.
+     */
+    public Rational get(final int v) {
+        final int i = Arrays.binarySearch(vars, 0, size, v);
+        return i >= 0 ? coeffs[i] : null;
+    }
+
+    public boolean contains(final int v) {
+        return Arrays.binarySearch(vars, 0, size, v) >= 0;
+    }
+
+    /**
+     * Removes the term of variable {@code v}.
+     *
+     * @param v the variable whose term is removed.
+     * @return the coefficient of the removed term or {@code null} if
+     * {@code v} does not appear in this linear expression.
+     */
+    public Rational remove(final int v) {
+        final int i = Arrays.binarySearch(vars, 0, size, v);
+        if (i < 0) {
+            return null;
+        }
+        final Rational c = coeffs[i];
+        System.arraycopy(vars, i + 1, vars, i, size - i - 1);
+        System.arraycopy(coeffs, i + 1, coeffs, i, size - i - 1);
+        coeffs[--size] = null;
+        return c;
+    }
+
     public void add(final int v, final Rational c) {
-        Rational rat = vars.get(v);
-        if (rat != null) {
-            rat.add(c);
-            if (rat.eq(0)) {
-                vars.remove(v);
+        final int i = Arrays.binarySearch(vars, 0, size, v);
+        if (i >= 0) {
+            coeffs[i].add(c);
+            if (coeffs[i].eq(0)) {
+                remove(v);
             }
-        } else {
-            vars.put(v, new Rational(c));
+        } else if (c.neq(0)) {
+            final int ins = -i - 1;
+            ensureCapacity(size + 1);
+            System.arraycopy(vars, ins, vars, ins + 1, size - ins);
+            System.arraycopy(coeffs, ins, coeffs, ins + 1, size - ins);
+            vars[ins] = v;
+            coeffs[ins] = new Rational(c);
+            size++;
         }
     }
 
     public void add(final Lin rhs) {
-        for (Int2ObjectMap.Entry<Rational> entry : rhs.vars.int2ObjectEntrySet()) {
-            Rational rat = vars.get(entry.getIntKey());
-            if (rat != null) {
-                rat.add(entry.getValue());
-            } else {
-                vars.put(entry.getIntKey(), new Rational(entry.getValue()));
-            }
-        }
-        vars.int2ObjectEntrySet().removeIf(term -> term.getValue().eq(0));
-        known_term.add(rhs.known_term);
+        addMul(rhs, ONE);
     }
 
     public void sub(final Lin rhs) {
-        for (Int2ObjectMap.Entry<Rational> entry : rhs.vars.int2ObjectEntrySet()) {
-            Rational rat = vars.get(entry.getIntKey());
-            if (rat != null) {
-                rat.sub(entry.getValue());
+        addMul(rhs, MINUS_ONE);
+    }
+
+    /**
+     * Adds to this linear expression the product of the given linear
+     * expression and the given coefficient, without creating an intermediate
+     * linear expression. Terms are merged from the last one, so that no
+     * memory is allocated if this expression has room for the result.
+     *
+     * @param rhs the linear expression.
+     * @param c the coefficient.
+     */
+    public void addMul(final Lin rhs, final Rational c) {
+        assert rhs != this;
+        final int n = size + rhs.size;
+        ensureCapacity(n);
+        int i = size - 1, j = rhs.size - 1, k = n - 1;
+        boolean zeros = false; // whether some coefficient has become zero..
+        while (j >= 0) {
+            if (i >= 0 && vars[i] > rhs.vars[j]) {
+                vars[k] = vars[i];
+                coeffs[k] = coeffs[i--];
+            } else if (i >= 0 && vars[i] == rhs.vars[j]) {
+                vars[k] = vars[i];
+                coeffs[k] = coeffs[i--];
+                coeffs[k].addMul(rhs.coeffs[j--], c);
+                zeros |= coeffs[k].eq(0);
             } else {
-                vars.put(entry.getIntKey(), entry.getValue().minus());
+                vars[k] = rhs.vars[j];
+                coeffs[k] = rhs.coeffs[j--].times(c);
+                zeros |= coeffs[k].eq(0);
+            }
+            k--;
+        }
+        // the first 'i + 1' terms are already in place, we move the merged ones next to them..
+        int c_size = i + 1;
+        for (int h = k + 1; h < n; h++) {
+            if (!zeros || coeffs[h].neq(0)) {
+                vars[c_size] = vars[h];
+                coeffs[c_size++] = coeffs[h];
             }
         }
-        vars.int2ObjectEntrySet().removeIf(term -> term.getValue().eq(0));
-        known_term.sub(rhs.known_term);
+        Arrays.fill(coeffs, c_size, n, null);
+        size = c_size;
+        known_term.addMul(rhs.known_term, c);
     }
 
     public void add(final Rational rhs) {
@@ -94,18 +218,20 @@ public class Lin {
     }
 
     public void mult(final Rational rhs) {
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            vars.get(entry.getIntKey()).mult(rhs);
+        if (rhs.eq(0)) {
+            Arrays.fill(coeffs, 0, size, null);
+            size = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            coeffs[i].mult(rhs);
         }
-        vars.int2ObjectEntrySet().removeIf(term -> term.getValue().eq(0));
         known_term.mult(rhs);
     }
 
     public void div(final Rational rhs) {
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            vars.get(entry.getIntKey()).div(rhs);
+        for (int i = 0; i < size; i++) {
+            coeffs[i].div(rhs);
         }
-        vars.int2ObjectEntrySet().removeIf(term -> term.getValue().eq(0));
         known_term.div(rhs);
     }
 
@@ -118,155 +244,165 @@ public class Lin {
     }
 
     public void mult(final long rhs) {
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            vars.get(entry.getIntKey()).mult(rhs);
+        if (rhs == 0) {
+            Arrays.fill(coeffs, 0, size, null);
+            size = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            coeffs[i].mult(rhs);
         }
-        vars.int2ObjectEntrySet().removeIf(term -> term.getValue().eq(0));
         known_term.mult(rhs);
     }
 
     public void div(final long rhs) {
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            vars.get(entry.getIntKey()).div(rhs);
+        for (int i = 0; i < size; i++) {
+            coeffs[i].div(rhs);
         }
-        vars.int2ObjectEntrySet().removeIf(term -> term.getValue().eq(0));
         known_term.div(rhs);
     }
 
     public Lin plus(final Lin rhs) {
-        Lin lin = new Lin(known_term.plus(rhs.known_term));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), new Rational(entry.getValue()));
-        }
-        for (Int2ObjectMap.Entry<Rational> entry : rhs.vars.int2ObjectEntrySet()) {
-            Rational rat = lin.vars.get(entry.getIntKey());
-            if (rat != null) {
-                rat.add(entry.getIntKey());
-            } else {
-                lin.vars.put(entry.getIntKey(), new Rational(entry.getValue()));
-            }
-        }
+        Lin lin = new Lin(this);
+        lin.add(rhs);
         return lin;
     }
 
     public Lin minus(final Lin rhs) {
-        Lin lin = new Lin(known_term.minus(rhs.known_term));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), new Rational(entry.getValue()));
-        }
-        for (Int2ObjectMap.Entry<Rational> entry : rhs.vars.int2ObjectEntrySet()) {
-            Rational rat = lin.vars.get(entry.getIntKey());
-            if (rat != null) {
-                rat.sub(entry.getIntKey());
-            } else {
-                lin.vars.put(entry.getIntKey(), entry.getValue().minus());
-            }
-        }
+        Lin lin = new Lin(this);
+        lin.sub(rhs);
         return lin;
     }
 
     public Lin plus(final Rational rhs) {
-        Lin lin = new Lin(known_term.plus(rhs));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), new Rational(entry.getValue()));
-        }
+        Lin lin = new Lin(this);
+        lin.add(rhs);
         return lin;
     }
 
     public Lin minus(final Rational rhs) {
-        Lin lin = new Lin(known_term.minus(rhs));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), new Rational(entry.getValue()));
-        }
+        Lin lin = new Lin(this);
+        lin.sub(rhs);
         return lin;
     }
 
     public Lin times(final Rational rhs) {
-        Lin lin = new Lin(known_term.times(rhs));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), entry.getValue().times(rhs));
-        }
+        Lin lin = new Lin(this);
+        lin.mult(rhs);
         return lin;
     }
 
     public Lin divide(final Rational rhs) {
-        Lin lin = new Lin(known_term.divide(rhs));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), entry.getValue().divide(rhs));
-        }
+        Lin lin = new Lin(this);
+        lin.div(rhs);
         return lin;
     }
 
     public Lin plus(final long rhs) {
-        Lin lin = new Lin(known_term.plus(rhs));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), entry.getValue().divide(rhs));
-        }
+        Lin lin = new Lin(this);
+        lin.add(rhs);
         return lin;
     }
 
     public Lin minus(final long rhs) {
-        Lin lin = new Lin(known_term.minus(rhs));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), entry.getValue().divide(rhs));
-        }
+        Lin lin = new Lin(this);
+        lin.sub(rhs);
         return lin;
     }
 
     public Lin times(final long rhs) {
-        Lin lin = new Lin(known_term.times(rhs));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), entry.getValue().divide(rhs));
-        }
+        Lin lin = new Lin(this);
+        lin.mult(rhs);
         return lin;
     }
 
     public Lin divide(final long rhs) {
-        Lin lin = new Lin(known_term.divide(rhs));
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), entry.getValue().divide(rhs));
-        }
+        Lin lin = new Lin(this);
+        lin.div(rhs);
         return lin;
     }
 
     public Lin minus() {
-        Lin lin = new Lin(known_term.minus());
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            lin.vars.put(entry.getIntKey(), entry.getValue().minus());
-        }
+        Lin lin = new Lin(this);
+        lin.mult(-1);
         return lin;
     }
 
+    private void ensureCapacity(final int minCapacity) {
+        int capacity = vars.length;
+        if (minCapacity > capacity) {
+            while (minCapacity > capacity) {
+                capacity = (capacity * 3) / 2 + 1;
+            }
+            vars = Arrays.copyOf(vars, capacity);
+            coeffs = Arrays.copyOf(coeffs, capacity);
+        }
+    }
+
+    /**
+     * Returns a hash code of this linear expression, computed over its terms
+     * and its known term, without formatting them.
+     */
+    @Override
+    public int hashCode() {
+        int hash = known_term.hashCode();
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + vars[i];
+            hash = 31 * hash + coeffs[i].hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final Lin other = (Lin) obj;
+        if (size != other.size || known_term.neq(other.known_term)) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (vars[i] != other.vars[i] || coeffs[i].neq(other.coeffs[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String toString() {
-        if (vars.isEmpty()) {
+        if (size == 0) {
             return known_term.toString();
         }
 
         StringBuilder str = new StringBuilder();
-        int first_var = vars.firstIntKey();
-        for (Int2ObjectMap.Entry<Rational> entry : vars.int2ObjectEntrySet()) {
-            if (entry.getIntKey() == first_var) {
-                if (entry.getValue().eq(1)) {
+        for (int i = 0; i < size; i++) {
+            if (i == 0) {
+                if (coeffs[i].eq(1)) {
                     str.append("x");
-                } else if (entry.getValue().eq(-1)) {
+                } else if (coeffs[i].eq(-1)) {
                     str.append("-x");
                 } else {
-                    str.append(entry.getValue().toString()).append("*x");
+                    str.append(coeffs[i].toString()).append("*x");
                 }
-                str.append(entry.getIntKey());
             } else {
-                if (entry.getValue().eq(1)) {
+                if (coeffs[i].eq(1)) {
                     str.append(" + x");
-                } else if (entry.getValue().eq(-1)) {
+                } else if (coeffs[i].eq(-1)) {
                     str.append(" - x");
-                } else if (entry.getValue().isPositive()) {
-                    str.append(" + ").append(entry.getValue().toString()).append("*x");
+                } else if (coeffs[i].isPositive()) {
+                    str.append(" + ").append(coeffs[i].toString()).append("*x");
                 } else {
-                    str.append(" - ").append(entry.getValue().minus().toString()).append("*x");
+                    str.append(" - ").append(coeffs[i].minus().toString()).append("*x");
                 }
-                str.append(entry.getIntKey());
             }
+            str.append(vars[i]);
         }
         if (known_term.isPositive()) {
             str.append(" + ").append(known_term.toString());
@@ -276,4 +412,81 @@ public class Lin {
         }
         return str.toString();
     }
+
+    /**
+     * This class is used for building linear expressions whose terms are
+     * added in no particular order, possibly repeating the same variable.
+     * Terms are collected as they come and are sorted, and merged, only once
+     * the linear expression is built.
+     */
+    public static class Builder {
+
+        private int[] vars = new int[8];
+        private Rational[] coeffs = new Rational[8];
+        private int size = 0;
+        private final Rational known_term = new Rational();
+
+        public Builder add(final int v, final Rational c) {
+            if (size == vars.length) {
+                final int capacity = (vars.length * 3) / 2 + 1;
+                vars = Arrays.copyOf(vars, capacity);
+                coeffs = Arrays.copyOf(coeffs, capacity);
+            }
+            vars[size] = v;
+            coeffs[size++] = new Rational(c);
+            return this;
+        }
+
+        public Builder add(final int v, final long c) {
+            return add(v, new Rational(c));
+        }
+
+        public Builder add(final Rational c) {
+            known_term.add(c);
+            return this;
+        }
+
+        public Builder add(final long c) {
+            known_term.add(c);
+            return this;
+        }
+
+        /**
+         * Builds the linear expression and resets this builder, so that it
+         * can be reused.
+         *
+         * @return the linear expression made of the added terms.
+         */
+        public Lin build() {
+            it.unimi.dsi.fastutil.Arrays.quickSort(0, size, (i, j) -> Integer.compare(vars[i], vars[j]), (i, j) -> {
+                final int c_var = vars[i];
+                vars[i] = vars[j];
+                vars[j] = c_var;
+                final Rational c_coeff = coeffs[i];
+                coeffs[i] = coeffs[j];
+                coeffs[j] = c_coeff;
+            });
+            final Lin lin = new Lin(new Rational(known_term));
+            lin.vars = new int[size];
+            lin.coeffs = new Rational[size];
+            for (int i = 0; i < size; i++) {
+                if (lin.size > 0 && lin.vars[lin.size - 1] == vars[i]) {
+                    lin.coeffs[lin.size - 1].add(coeffs[i]);
+                } else {
+                    if (lin.size > 0 && lin.coeffs[lin.size - 1].eq(0)) {
+                        lin.size--; // we overwrite the last term, which has vanished..
+                    }
+                    lin.vars[lin.size] = vars[i];
+                    lin.coeffs[lin.size++] = coeffs[i];
+                }
+            }
+            if (lin.size > 0 && lin.coeffs[lin.size - 1].eq(0)) {
+                lin.coeffs[--lin.size] = null;
+            }
+            Arrays.fill(coeffs, 0, size, null);
+            size = 0;
+            known_term.set(0);
+            return lin;
+        }
+    }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.lra;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder event emitted by each (enabled) pivot of the simplex.
+ *
+ * @author Riccardo De Benedictis
+ */
+@Name("semitone.Pivot")
+@Label("Pivot")
+@Category({ "SeMiTONE", "LRA" })
+@Description("The exchange of a basic variable with a non-basic one")
+@StackTrace(false)
+class PivotEvent extends Event {
+
+    @Label("Leaving Variable")
+    int leaving;
+    @Label("Entering Variable")
+    int entering;
+    @Label("Updated Rows")
+    int rows;
+}
@@ -16,7 +16,21 @@
  */
 package it.cnr.istc.pst.semitone.lra;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
 /**
+ * This class is used for representing (possibly infinite) rational numbers.
+ * Numerators and denominators are stored as {@code long}s and all the
+ * operations are performed on primitive values as long as they do not
+ * overflow. Once an operation would overflow, the result is promoted to
+ * {@link BigInteger}s and is demoted back as soon as it fits again into
+ * {@code long}s, so that the (common) small case is not penalized.
+ * <p>
+ * Rationals are kept normalized (i.e., the numerator and the denominator are
+ * coprime and the denominator is non-negative), hence each value has a unique
+ * representation, either primitive or promoted.
  *
  * @author Riccardo De Benedictis
  */
@@ -24,8 +38,10 @@ public class Rational extends Number implements Comparable<Rational> {
 
     public static final Rational POSITIVE_INFINITY = new Rational(1, 0);
     public static final Rational NEGATIVE_INFINITY = new Rational(-1, 0);
-    public long num; // the numerator..
-    public long den; // the denominator..
+    public long num; // the numerator (or its sign, if promoted)..
+    public long den; // the denominator (or 1, if promoted)..
+    private BigInteger big_num; // the numerator, if promoted..
+    private BigInteger big_den; // the denominator, if promoted..
 
     public Rational() {
         this.num = 0;
@@ -35,6 +51,8 @@ public class Rational extends Number implements Comparable<Rational> {
     public Rational(final Rational r) {
         this.num = r.num;
         this.den = r.den;
+        this.big_num = r.big_num;
+        this.big_den = r.big_den;
     }
 
     public Rational(final long n) {
@@ -48,6 +66,29 @@ public class Rational extends Number implements Comparable<Rational> {
         normalize();
     }
 
+    public Rational(final BigInteger n, final BigInteger d) {
+        set(n, d);
+    }
+
+    /**
+     * Checks whether this rational has been promoted to {@link BigInteger}s,
+     * in which case the {@link #num} and {@link #den} fields do not represent
+     * its value.
+     *
+     * @return whether this rational has been promoted.
+     */
+    public boolean isBig() {
+        return big_num != null;
+    }
+
+    public BigInteger numerator() {
+        return big_num != null ? big_num : BigInteger.valueOf(num);
+    }
+
+    public BigInteger denominator() {
+        return big_den != null ? big_den : BigInteger.valueOf(den);
+    }
+
     public boolean isPositive() {
         return num > 0;
     }
@@ -69,325 +110,393 @@ public class Rational extends Number implements Comparable<Rational> {
     }
 
     public boolean neq(final Rational rhs) {
-        return num != rhs.num || den != rhs.den;
+        return !eq(rhs);
     }
 
     public boolean lt(final Rational rhs) {
-        return (den == 0 && rhs.den == 0) ? num < rhs.num : num * rhs.den < den * rhs.num;
+        return compareTo(rhs) < 0;
     }
 
     public boolean leq(final Rational rhs) {
-        return num * rhs.den <= den * rhs.num;
+        return compareTo(rhs) <= 0;
     }
 
     public boolean eq(final Rational rhs) {
+        if (big_num != null || rhs.big_num != null) {
+            // representations are unique, hence a promoted rational cannot be equal to a primitive one..
+            return big_num != null && rhs.big_num != null && big_num.equals(rhs.big_num) && big_den.equals(rhs.big_den);
+        }
         return num == rhs.num && den == rhs.den;
     }
 
     public boolean geq(final Rational rhs) {
-        return num * rhs.den >= den * rhs.num;
+        return compareTo(rhs) >= 0;
     }
 
     public boolean gt(final Rational rhs) {
-        return (den == 0 && rhs.den == 0) ? num > rhs.num : num * rhs.den > den * rhs.num;
+        return compareTo(rhs) > 0;
     }
 
     public boolean neq(final long rhs) {
-        return num != rhs || den != 1;
+        return !eq(rhs);
     }
 
     public boolean lt(final long rhs) {
-        return num < den * rhs;
+        return compareTo(rhs) < 0;
     }
 
     public boolean leq(final long rhs) {
-        return num <= den * rhs;
+        return compareTo(rhs) <= 0;
     }
 
     public boolean eq(final long rhs) {
-        return num == rhs && den == 1;
+        return big_num == null && num == rhs && den == 1;
     }
 
     public boolean geq(final long rhs) {
-        return num >= den * rhs;
+        return compareTo(rhs) >= 0;
     }
 
     public boolean gt(final long rhs) {
-        return num > den * rhs;
+        return compareTo(rhs) > 0;
     }
 
     @Override
-    public int compareTo(Rational o) {
-        if (eq(o)) {
-            return 0;
+    public int compareTo(final Rational o) {
+        if (big_num != null || o.big_num != null) {
+            if (den == 0 || o.den == 0) { // infinities are never promoted..
+                return den == 0 && o.den == 0 ? Long.compare(num, o.num) : den == 0 ? (int) num : (int) -o.num;
+            }
+            return numerator().multiply(o.denominator()).compareTo(denominator().multiply(o.numerator()));
         }
-        if (lt(o)) {
-            return -1;
+        if (den == 0 && o.den == 0) {
+            return Long.compare(num, o.num);
         }
-        if (gt(o)) {
-            return 1;
+        // notice that infinities are correctly compared with finite values, being the denominators non-negative..
+        return compare(num, o.den, den, o.num);
+    }
+
+    public int compareTo(final long o) {
+        if (big_num != null) {
+            return big_num.compareTo(big_den.multiply(BigInteger.valueOf(o)));
         }
-        throw new AssertionError();
+        return compare(num, 1, den, o);
     }
 
     public void add(final Rational rhs) {
-        assert den != 0 || rhs.den != 0 || num == rhs.num; // inf + -inf or -inf + inf..
-
-        // special cases..
-        if (num == 0 || rhs.isInfinite()) {
-            num = rhs.num;
-            den = rhs.den;
-            return;
-        }
-        if (rhs.num == 0 || isInfinite()) {
-            return;
+        if (rhs.big_num == null) {
+            add(rhs.num, rhs.den);
+        } else if (den != 0) { // adding a finite value to an infinity has no effect..
+            add(rhs.big_num, rhs.big_den);
         }
-        if (den == 1 && rhs.den == 1) {
-            num += rhs.num;
-            return;
-        }
-
-        long f = gcd(num, rhs.num);
-        long g = gcd(den, rhs.den);
-
-        num = (num / f) * (rhs.den / g) + (rhs.num / f) * (den / g);
-        den = lcm(den, rhs.den);
-        normalize();
-        num *= f;
     }
 
     public void sub(final Rational rhs) {
-        add(rhs.minus());
+        if (rhs.big_num == null && rhs.num != Long.MIN_VALUE) {
+            add(-rhs.num, rhs.den);
+        } else if (den != 0) { // subtracting a finite value from an infinity has no effect..
+            add(rhs.numerator().negate(), rhs.denominator());
+        }
     }
 
     public void mult(final Rational rhs) {
-        assert num != 0 || rhs.den != 0; // 0*inf..
-        assert den != 0 || rhs.num != 0; // inf*0..
-
-        // special cases..
-        if (rhs.eq(1)) {
-            return;
-        }
-        if (eq(1)) {
-            num = rhs.num;
-            den = rhs.den;
-            return;
-        }
-        if (den == 1 && rhs.den == 1) {
-            num *= rhs.num;
-            return;
-        }
-        if (isInfinite() || rhs.isInfinite()) {
-            num = ((num >= 0 && rhs.num >= 0) || (num <= 0 && rhs.num <= 0)) ? 1 : -1;
-            den = 0;
-            return;
+        if (rhs.big_num == null) {
+            mult(rhs.num, rhs.den);
+        } else if (den == 0) { // the sign of the infinity might change..
+            num = num == rhs.num ? 1 : -1;
+        } else {
+            set(numerator().multiply(rhs.big_num), denominator().multiply(rhs.big_den));
         }
-
-        Rational c = new Rational(num, rhs.den);
-        Rational d = new Rational(rhs.num, den);
-
-        num = c.num * d.num;
-        den = c.den * d.den;
-        normalize();
     }
 
     public void div(final Rational rhs) {
-        Rational rec = new Rational();
-        rec.num = rhs.den;
-        rec.den = rhs.num;
-        if (rhs.num >= 0) {
-            rec.num = rhs.den;
-            rec.den = rhs.num;
+        if (rhs.big_num == null) {
+            mult_reciprocal(rhs.num, rhs.den);
+        } else if (den == 0) { // the sign of the infinity might change..
+            num = num == rhs.num ? 1 : -1;
         } else {
-            rec.num = -rhs.den;
-            rec.den = -rhs.num;
+            set(numerator().multiply(rhs.big_den), denominator().multiply(rhs.big_num));
         }
-        Rational.this.mult(rec);
     }
 
     public void add(final long rhs) {
-        // special cases..
-        if (num == 0) {
-            num = rhs;
-            return;
-        }
-        if (rhs == 0 || isInfinite()) {
-            return;
-        }
-        if (den == 1) {
-            num += rhs;
-            return;
-        }
-
-        num += rhs * den;
+        add(rhs, 1);
     }
 
     public void sub(final long rhs) {
-        add(-rhs);
+        if (rhs != Long.MIN_VALUE) {
+            add(-rhs, 1);
+        } else if (den != 0) {
+            add(BigInteger.valueOf(rhs).negate(), BigInteger.ONE);
+        }
     }
 
     public void mult(final long rhs) {
-        assert den != 0 || rhs != 0; // inf*0..
+        mult(rhs, 1);
+    }
 
-        // special cases..
-        if (rhs == 1) {
-            return;
-        }
-        if (eq(1)) {
-            num = rhs;
-            return;
-        }
-        if (isInfinite()) {
-            num = ((num >= 0 && rhs >= 0) || (num <= 0 && rhs <= 0)) ? 1 : -1;
-            return;
-        }
+    public void div(final long rhs) {
+        mult_reciprocal(rhs, 1);
+    }
 
-        num *= rhs;
-        if (den != 1) {
-            normalize();
+    /**
+     * Adds to this rational the product of the given rationals, without
+     * creating intermediate objects.
+     *
+     * @param a the first factor.
+     * @param b the second factor.
+     */
+    public void addMul(final Rational a, final Rational b) {
+        assert a.num != 0 || b.den != 0; // 0*inf..
+        assert a.den != 0 || b.num != 0; // inf*0..
+        if (a.big_num == null && b.big_num == null) {
+            if (a.den == 0 || b.den == 0) {
+                add((a.num >= 0 && b.num >= 0) || (a.num <= 0 && b.num <= 0) ? 1 : -1, 0);
+                return;
+            }
+            try {
+                // we simplify crosswise so that the product is already normalized..
+                final long g0 = gcd(a.num, b.den);
+                final long g1 = gcd(b.num, a.den);
+                add(Math.multiplyExact(a.num / g0, b.num / g1), Math.multiplyExact(a.den / g1, b.den / g0));
+                return;
+            } catch (ArithmeticException e) {
+                // we fall back to big integers..
+            }
         }
+        add(a.times(b));
     }
 
-    public void div(final long rhs) {
-        Rational rec = new Rational();
-        rec.num = 1;
-        rec.den = rhs;
-        if (rhs >= 0) {
-            rec.num = 1;
-            rec.den = rhs;
-        } else {
-            rec.num = -1;
-            rec.den = -rhs;
-        }
-        Rational.this.mult(rec);
+    /**
+     * Subtracts from this rational the product of the given rationals, without
+     * creating intermediate objects.
+     *
+     * @param a the first factor.
+     * @param b the second factor.
+     */
+    public void subMul(final Rational a, final Rational b) {
+        negate();
+        addMul(a, b);
+        negate();
     }
 
-    public Rational plus(final Rational rhs) {
-        assert den != 0 || rhs.den != 0 || num == rhs.num; // inf + -inf or -inf + inf..
+    /**
+     * Sets this rational to the given one.
+     *
+     * @param r the new value of this rational.
+     */
+    public void set(final Rational r) {
+        num = r.num;
+        den = r.den;
+        big_num = r.big_num;
+        big_den = r.big_den;
+    }
 
-        // special cases..
-        if (num == 0 || rhs.isInfinite()) {
-            return rhs;
-        }
-        if (rhs.num == 0 || isInfinite()) {
-            return this;
-        }
-        if (den == 1 && rhs.den == 1) {
-            return new Rational(num + rhs.num);
-        }
+    /**
+     * Sets this rational to the given integer.
+     *
+     * @param n the new value of this rational.
+     */
+    public void set(final long n) {
+        num = n;
+        den = 1;
+        big_num = null;
+        big_den = null;
+    }
+
+    /**
+     * Sets this rational to the fraction {@code n/d}, which is assumed to be
+     * already normalized.
+     */
+    void set(final long n, final long d) {
+        assert d >= 0;
+        num = n;
+        den = d;
+        big_num = null;
+        big_den = null;
+    }
 
-        long f = gcd(num, rhs.num);
-        long g = gcd(den, rhs.den);
+    /**
+     * Changes the sign of this rational.
+     */
+    public void negate() {
+        if (big_num != null) {
+            big_num = big_num.negate();
+            num = -num;
+        } else if (num != Long.MIN_VALUE) {
+            num = -num;
+        } else { // the opposite of Long.MIN_VALUE cannot be represented..
+            set(BigInteger.valueOf(num).negate(), BigInteger.valueOf(den));
+        }
+    }
 
-        Rational res = new Rational((num / f) * (rhs.den / g) + (rhs.num / f) * (den / g), lcm(den, rhs.den));
-        res.num *= f;
+    public Rational plus(final Rational rhs) {
+        final Rational res = new Rational(this);
+        res.add(rhs);
         return res;
     }
 
     public Rational minus(final Rational rhs) {
-        return plus(rhs.minus());
+        final Rational res = new Rational(this);
+        res.sub(rhs);
+        return res;
     }
 
     public Rational times(final Rational rhs) {
-        assert num != 0 || rhs.den != 0; // 0*inf..
-        assert den != 0 || rhs.num != 0; // inf*0..
-
-        // special cases..
-        if (rhs.eq(1)) {
-            return this;
-        }
-        if (eq(1)) {
-            return rhs;
-        }
-        if (den == 1 && rhs.den == 1) {
-            return new Rational(num * rhs.num);
-        }
-        if (isInfinite() || rhs.isInfinite()) {
-            return ((num >= 0 && rhs.num >= 0) || (num <= 0 && rhs.num <= 0)) ? POSITIVE_INFINITY : NEGATIVE_INFINITY;
-        }
-
-        Rational c = new Rational(num, rhs.den);
-        Rational d = new Rational(rhs.num, den);
-        return new Rational(c.num * d.num, c.den * d.den);
+        final Rational res = new Rational(this);
+        res.mult(rhs);
+        return res;
     }
 
     public Rational divide(final Rational rhs) {
-        Rational rec = new Rational();
-        if (rhs.num >= 0) {
-            rec.num = rhs.den;
-            rec.den = rhs.num;
-        } else {
-            rec.num = -rhs.den;
-            rec.den = -rhs.num;
-        }
-        return times(rec);
+        final Rational res = new Rational(this);
+        res.div(rhs);
+        return res;
     }
 
     public Rational plus(final long rhs) {
-        // special cases..
-        if (num == 0) {
-            return new Rational(rhs);
-        }
-        if (rhs == 0 || isInfinite()) {
-            return this;
-        }
-        if (den == 1) {
-            return new Rational(num + rhs);
-        }
-
-        Rational res = new Rational();
-        res.num = num + rhs * den;
-        res.den = den;
+        final Rational res = new Rational(this);
+        res.add(rhs);
         return res;
     }
 
     public Rational minus(final long rhs) {
-        return plus(-rhs);
+        final Rational res = new Rational(this);
+        res.sub(rhs);
+        return res;
     }
 
     public Rational times(final long rhs) {
-        assert den != 0 || rhs != 0; // inf*0..
+        final Rational res = new Rational(this);
+        res.mult(rhs);
+        return res;
+    }
+
+    public Rational divide(final long rhs) {
+        final Rational res = new Rational(this);
+        res.div(rhs);
+        return res;
+    }
+
+    public Rational minus() {
+        final Rational neg = new Rational(this);
+        neg.negate();
+        return neg;
+    }
+
+    /**
+     * Adds the normalized fraction {@code n/d} to this rational.
+     */
+    private void add(final long n, final long d) {
+        assert den != 0 || d != 0 || num == n; // inf + -inf or -inf + inf..
 
         // special cases..
-        if (rhs == 1) {
-            return this;
-        }
-        if (eq(1)) {
-            return new Rational(rhs);
+        if (num == 0 || d == 0) {
+            num = n;
+            den = d;
+            big_num = null;
+            big_den = null;
+            return;
         }
-        if (den == 1) {
-            return new Rational(num * rhs);
+        if (n == 0 || den == 0) {
+            return;
         }
-        if (isInfinite()) {
-            return ((num >= 0 && rhs >= 0) || (num <= 0 && rhs <= 0)) ? POSITIVE_INFINITY : NEGATIVE_INFINITY;
+        if (big_num == null) {
+            try {
+                if (den == 1 && d == 1) {
+                    num = Math.addExact(num, n);
+                    return;
+                }
+                final long g = gcd(den, d);
+                final long c_num = Math.addExact(Math.multiplyExact(num, d / g), Math.multiplyExact(n, den / g));
+                den = Math.multiplyExact(den, d / g);
+                num = c_num;
+                normalize();
+                return;
+            } catch (ArithmeticException e) {
+                // we fall back to big integers..
+            }
         }
+        add(BigInteger.valueOf(n), BigInteger.valueOf(d));
+    }
 
-        return new Rational(num * rhs, den);
+    /**
+     * Adds the finite fraction {@code n/d} to this (finite) rational.
+     */
+    private void add(final BigInteger n, final BigInteger d) {
+        assert den != 0;
+        set(numerator().multiply(d).add(n.multiply(denominator())), denominator().multiply(d));
     }
 
-    public Rational divide(final long rhs) {
-        Rational rec = new Rational();
-        rec.num = 1;
-        rec.den = rhs;
-        if (rhs >= 0) {
-            rec.num = 1;
-            rec.den = rhs;
-        } else {
-            rec.num = -1;
-            rec.den = -rhs;
+    /**
+     * Multiplies this rational by the normalized fraction {@code n/d}.
+     */
+    private void mult(final long n, final long d) {
+        assert num != 0 || d != 0; // 0*inf..
+        assert den != 0 || n != 0; // inf*0..
+
+        // special cases..
+        if (n == 1 && d == 1) {
+            return;
+        }
+        if (den == 0 || d == 0) {
+            num = (num >= 0 && n >= 0) || (num <= 0 && n <= 0) ? 1 : -1;
+            den = 0;
+            big_num = null;
+            big_den = null;
+            return;
+        }
+        if (big_num == null) {
+            if (num == 1 && den == 1) {
+                num = n;
+                den = d;
+                return;
+            }
+            try {
+                if (den == 1 && d == 1) {
+                    num = Math.multiplyExact(num, n);
+                    return;
+                }
+                // we simplify crosswise so that the result is already normalized..
+                final long g0 = gcd(num, d);
+                final long g1 = gcd(n, den);
+                final long c_num = Math.multiplyExact(num / g0, n / g1);
+                den = Math.multiplyExact(den / g1, d / g0);
+                num = c_num;
+                return;
+            } catch (ArithmeticException e) {
+                // we fall back to big integers..
+            }
         }
-        return times(rec);
+        set(numerator().multiply(BigInteger.valueOf(n)), denominator().multiply(BigInteger.valueOf(d)));
     }
 
-    public Rational minus() {
-        Rational neg = new Rational();
-        neg.num = -num;
-        neg.den = den;
-        return neg;
+    /**
+     * Multiplies this rational by the reciprocal of the normalized fraction
+     * {@code n/d}, being the reciprocal of zero (positive) infinity and the
+     * reciprocal of infinities zero.
+     */
+    private void mult_reciprocal(final long n, final long d) {
+        if (n == 0) {
+            mult(1, 0);
+        } else if (d == 0) {
+            mult(0, 1);
+        } else if (n > 0) {
+            mult(d, n);
+        } else if (n != Long.MIN_VALUE) {
+            mult(-d, -n);
+        } else if (den == 0) {
+            num = -num;
+        } else {
+            set(numerator().multiply(BigInteger.valueOf(d)), denominator().multiply(BigInteger.valueOf(n)));
+        }
     }
 
     @Override
     public int hashCode() {
+        if (big_num != null) {
+            return 29 * big_num.hashCode() + big_den.hashCode();
+        }
         int hash = 5;
         hash = 29 * hash + (int) (this.num ^ (this.num >>> 32));
         hash = 29 * hash + (int) (this.den ^ (this.den >>> 32));
@@ -405,13 +514,14 @@ public class Rational extends Number implements Comparable<Rational> {
         if (getClass() != obj.getClass()) {
             return false;
         }
-        final Rational other = (Rational) obj;
-        return this.num == other.num && this.den == other.den;
+        return eq((Rational) obj);
     }
 
     @Override
     public String toString() {
-        if (den == 0) {
+        if (big_num != null) {
+            return big_num + "/" + big_den;
+        } else if (den == 0) {
             return num > 0 ? "+inf" : "-inf";
         } else if (den == 1) {
             return Long.toString(num);
@@ -420,7 +530,39 @@ public class Rational extends Number implements Comparable<Rational> {
         }
     }
 
+    /**
+     * Sets this rational to the normalization of the given fraction, demoting
+     * it to {@code long}s if possible.
+     */
+    private void set(BigInteger n, BigInteger d) {
+        assert d.signum() != 0;
+        final BigInteger c_gcd = n.gcd(d);
+        if (d.signum() < 0) {
+            n = n.negate();
+            d = d.negate();
+        }
+        if (!c_gcd.equals(BigInteger.ONE)) {
+            n = n.divide(c_gcd);
+            d = d.divide(c_gcd);
+        }
+        if (n.bitLength() < Long.SIZE && d.bitLength() < Long.SIZE) {
+            num = n.longValue();
+            den = d.longValue();
+            big_num = null;
+            big_den = null;
+        } else {
+            num = n.signum();
+            den = 1;
+            big_num = n;
+            big_den = d;
+        }
+    }
+
     private void normalize() {
+        if (den == Long.MIN_VALUE || (den < 0 && num == Long.MIN_VALUE)) { // the sign cannot be moved..
+            set(BigInteger.valueOf(num), BigInteger.valueOf(den));
+            return;
+        }
         if (den != 1) {
             long c_gcd = gcd(num, den);
             if (den < 0) {
@@ -437,24 +579,57 @@ public class Rational extends Number implements Comparable<Rational> {
 
     @Override
     public int intValue() {
-        return (int) (num / den);
+        return (int) longValue();
     }
 
     @Override
     public long longValue() {
-        return num / den;
+        return big_num != null ? big_num.divide(big_den).longValue() : num / den;
     }
 
     @Override
     public float floatValue() {
-        return (float) num / den;
+        return (float) doubleValue();
     }
 
     @Override
     public double doubleValue() {
+        if (big_num != null) {
+            return new BigDecimal(big_num).divide(new BigDecimal(big_den), MathContext.DECIMAL64).doubleValue();
+        }
         return (double) num / den;
     }
 
+    /**
+     * Compares the normalized fraction {@code n/d} with the given (not
+     * promoted) rational.
+     *
+     * @return a negative integer, zero, or a positive integer as {@code n/d}
+     * is less than, equal to, or greater than {@code r}.
+     */
+    static int compare(final long n, final long d, final Rational r) {
+        assert r.big_num == null;
+        if (d == 0 && r.den == 0) {
+            return Long.compare(n, r.num);
+        }
+        return compare(n, r.den, d, r.num);
+    }
+
+    /**
+     * Compares, without overflowing, {@code a * b} with {@code c * d}.
+     *
+     * @return a negative integer, zero, or a positive integer as {@code a * b}
+     * is less than, equal to, or greater than {@code c * d}.
+     */
+    private static int compare(final long a, final long b, final long c, final long d) {
+        if (a == (int) a && b == (int) b && c == (int) c && d == (int) d) {
+            return Long.compare(a * b, c * d); // the products fit into a long..
+        }
+        // we compare the 128-bit products, first by their signed high halves, then by their unsigned low halves..
+        final int hi = Long.compare(Math.multiplyHigh(a, b), Math.multiplyHigh(c, d));
+        return hi != 0 ? hi : Long.compareUnsigned(a * b, c * d);
+    }
+
     /**
      * Computes the greatest common divisor.
      *
@@ -474,23 +649,6 @@ public class Rational extends Number implements Comparable<Rational> {
             u = v;
             v = r;
         }
-        return u;
-    }
-
-    /**
-     * Computes the least common multiplier.
-     *
-     * @param u
-     * @param v
-     * @return the least common multiplier.
-     */
-    private static long lcm(long u, long v) {
-        if (u < 0) {
-            u = -u;
-        }
-        if (v < 0) {
-            v = -v;
-        }
-        return u * (v / gcd(u, v));
+        return u < 0 ? -u : u; // remainders of Long.MIN_VALUE might be negative..
     }
 }
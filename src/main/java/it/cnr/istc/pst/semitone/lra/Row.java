@@ -22,258 +22,225 @@ import static it.cnr.istc.pst.semitone.lra.LRATheory.ub_index;
 import java.util.List;
 
 import it.cnr.istc.pst.semitone.sat.Lit;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 
 /**
- * This class is used for representing tableau rows.
+ * This class is used for representing tableau rows. The terms of a row are
+ * {@link Entry entries} of the sparse tableau, linked both into the row and
+ * into the columns of their variables. Each row caches the implied bounds of
+ * its linear expression, as sums of the finite contributions of its terms
+ * plus the number of terms contributing an infinite bound, so that bound
+ * changes are accounted for in constant time rather than by summing up the
+ * whole row.
  *
  * @author Riccardo De Benedictis
  */
 class Row {
 
     private final LRATheory th;
-    final int x; // the basic variable..
-    final Lin l; // the linear expression..
+    int x; // the basic variable..
+    Entry first; // the first entry of the row..
+    int size = 0; // the number of entries of the row..
+    final Rational known_term; // the known term of the linear expression..
+    private final InfRational lb_sum = new InfRational(); // the sum of the finite contributions to the lower bound of the linear expression..
+    private final InfRational ub_sum = new InfRational(); // the sum of the finite contributions to the upper bound of the linear expression..
+    private int lb_infs = 0; // the number of terms contributing an infinite lower bound..
+    private int ub_infs = 0; // the number of terms contributing an infinite upper bound..
 
     Row(final LRATheory th, final int x, final Lin l) {
         this.th = th;
         this.x = x;
-        this.l = l;
+        this.known_term = new Rational(l.known_term);
         // we watch for theory propagation..
-        for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-            th.t_watches[term.getIntKey()].add(this);
+        for (int i = l.size() - 1; i >= 0; i--) {
+            th.link(new Entry(this, l.var(i), new Rational(l.coeff(i))));
         }
+        init();
     }
 
     /**
-     * Notifies, for propagation purposes, this tableau row that the lower bound
-     * of variable {@code x_i} has changed.
+     * Returns the linear expression of this row.
      *
-     * @param x_i the variable whose lower bound has changed.
-     * @param cnfl the conflict clause in case propagation fails.
-     * @return {@code true} if propagation succeeds.
+     * @return a new linear expression equal to this row.
      */
-    boolean propagate_lb(final int x_i, final List<Lit> cnfl) {
-        assert cnfl.isEmpty();
-        // we make room for the first literal..
-        cnfl.add(new Lit(0));
-        if (l.vars.get(x_i).isPositive()) {
-            InfRational lb = new InfRational();
-            for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-                if (term.getValue().isPositive()) {
-                    if (th.lb(term.getIntKey()).rat.isNegativeInfinite()) {
-                        // nothing to propagate..
-                        cnfl.clear();
-                        return true;
-                    } else {
-                        lb.add(th.lb(term.getIntKey()).times(term.getValue()));
-                        cnfl.add(th.bounds[lb_index(term.getIntKey())].reason.not());
-                    }
-                } else if (term.getValue().isNegative()) {
-                    if (th.ub(term.getIntKey()).rat.isPositiveInfinite()) {
-                        // nothing to propagate..
-                        cnfl.clear();
-                        return true;
-                    } else {
-                        lb.add(th.ub(term.getIntKey()).times(term.getValue()));
-                        cnfl.add(th.bounds[ub_index(term.getIntKey())].reason.not());
-                    }
-                }
+    Lin lin() {
+        final Lin.Builder builder = new Lin.Builder();
+        for (Entry e = first; e != null; e = e.row_next) {
+            builder.add(e.var, e.coeff);
+        }
+        return builder.add(known_term).build();
+    }
+
+    /**
+     * Returns the entry of variable {@code v} within this row.
+     *
+     * @param v the variable whose entry we are interested in.
+     * @return the entry of variable {@code v} or {@code null} if {@code v}
+     * does not appear within this row.
+     */
+    Entry entry(final int v) {
+        for (Entry e = first; e != null; e = e.row_next) {
+            if (e.var == v) {
+                return e;
             }
+        }
+        return null;
+    }
 
-            if (lb.gt(th.lb(x))) {
-                for (Assertion c : th.a_watches[x]) {
-                    if (lb.gt(c.v)) {
-                        switch (c.op) {
-                        case LEq: // the assertion is unsatisfable..
-                            cnfl.set(0, new Lit(c.b, false));
-                            switch (th.sat.value(c.b)) {
-                            case True: // we have a propositional inconsistency..
-                                return false;
-                            case Undefined: // we propagate information to the sat core..
-                                th.sat.record(cnfl.toArray(new Lit[cnfl.size()]));
-                            }
-                            break;
-                        case GEq: // the assertion is satisfied..
-                            cnfl.set(0, new Lit(c.b));
-                            switch (th.sat.value(c.b)) {
-                            case False: // we have a propositional inconsistency..
-                                return false;
-                            case Undefined: // we propagate information to the sat core..
-                                th.sat.record(cnfl.toArray(new Lit[cnfl.size()]));
-                            }
-                            break;
-                        }
-                    }
-                }
+    /**
+     * Recomputes, from scratch, the implied bounds of the linear expression.
+     * To be called whenever the linear expression changes.
+     */
+    void init() {
+        lb_sum.set(known_term);
+        ub_sum.set(known_term);
+        lb_infs = 0;
+        ub_infs = 0;
+        final InfRational c_bound = th.row_bound;
+        for (Entry e = first; e != null; e = e.row_next) {
+            th.bounds.get(e.coeff.isPositive() ? lb_index(e.var) : ub_index(e.var), c_bound);
+            if (c_bound.rat.isInfinite()) {
+                lb_infs++;
+            } else {
+                lb_sum.addMul(c_bound, e.coeff);
             }
-        } else {
-            InfRational ub = new InfRational();
-            for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-                if (term.getValue().isPositive()) {
-                    if (th.ub(term.getIntKey()).rat.isPositiveInfinite()) {
-                        // nothing to propagate..
-                        cnfl.clear();
-                        return true;
-                    } else {
-                        ub.add(th.ub(term.getIntKey()).times(term.getValue()));
-                        cnfl.add(th.bounds[ub_index(term.getIntKey())].reason.not());
-                    }
-                } else if (term.getValue().isNegative()) {
-                    if (th.lb(term.getIntKey()).rat.isNegativeInfinite()) {
-                        // nothing to propagate..
-                        cnfl.clear();
-                        return true;
-                    } else {
-                        ub.add(th.lb(term.getIntKey()).times(term.getValue()));
-                        cnfl.add(th.bounds[lb_index(term.getIntKey())].reason.not());
-                    }
-                }
+            th.bounds.get(e.coeff.isPositive() ? ub_index(e.var) : lb_index(e.var), c_bound);
+            if (c_bound.rat.isInfinite()) {
+                ub_infs++;
+            } else {
+                ub_sum.addMul(c_bound, e.coeff);
             }
+        }
+    }
 
-            if (ub.lt(th.ub(x))) {
-                for (Assertion c : th.a_watches[x]) {
-                    if (ub.lt(c.v)) {
-                        switch (c.op) {
-                        case LEq: // the assertion is satisfied..
-                            cnfl.set(0, new Lit(c.b));
-                            switch (th.sat.value(c.b)) {
-                            case False: // we have a propositional inconsistency..
-                                return false;
-                            case Undefined: // we propagate information to the sat core..
-                                th.sat.record(cnfl.toArray(new Lit[cnfl.size()]));
-                            }
-                            break;
-                        case GEq: // the assertion is unsatisfable..
-                            cnfl.set(0, new Lit(c.b, false));
-                            switch (th.sat.value(c.b)) {
-                            case True: // we have a propositional inconsistency..
-                                return false;
-                            case Undefined: // we propagate information to the sat core..
-                                th.sat.record(cnfl.toArray(new Lit[cnfl.size()]));
-                            }
-                            break;
-                        }
-                    }
-                }
-            }
+    /**
+     * Updates the implied bounds of the linear expression as a consequence of
+     * the change of the lower bound of a variable.
+     *
+     * @param c the coefficient of the variable whose lower bound changes.
+     * @param old_lb the previous lower bound of the variable.
+     * @param new_lb the new lower bound of the variable.
+     */
+    void update_lb(final Rational c, final InfRational old_lb, final InfRational new_lb) {
+        if (c.isPositive()) {
+            update_lb_sum(old_lb, new_lb, c);
+        } else {
+            update_ub_sum(old_lb, new_lb, c);
         }
+    }
 
-        cnfl.clear();
-        return true;
+    /**
+     * Updates the implied bounds of the linear expression as a consequence of
+     * the change of the upper bound of a variable.
+     *
+     * @param c the coefficient of the variable whose upper bound changes.
+     * @param old_ub the previous upper bound of the variable.
+     * @param new_ub the new upper bound of the variable.
+     */
+    void update_ub(final Rational c, final InfRational old_ub, final InfRational new_ub) {
+        if (c.isPositive()) {
+            update_ub_sum(old_ub, new_ub, c);
+        } else {
+            update_lb_sum(old_ub, new_ub, c);
+        }
+    }
+
+    private void update_lb_sum(final InfRational old_val, final InfRational new_val, final Rational c) {
+        if (old_val.rat.isInfinite()) {
+            lb_infs--;
+        } else {
+            lb_sum.subMul(old_val, c);
+        }
+        if (new_val.rat.isInfinite()) {
+            lb_infs++;
+        } else {
+            lb_sum.addMul(new_val, c);
+        }
+    }
+
+    private void update_ub_sum(final InfRational old_val, final InfRational new_val, final Rational c) {
+        if (old_val.rat.isInfinite()) {
+            ub_infs--;
+        } else {
+            ub_sum.subMul(old_val, c);
+        }
+        if (new_val.rat.isInfinite()) {
+            ub_infs++;
+        } else {
+            ub_sum.addMul(new_val, c);
+        }
+    }
+
+    /**
+     * Notifies, for propagation purposes, this tableau row that the lower bound
+     * of one of its variables has changed.
+     *
+     * @param c the coefficient of the variable whose lower bound has changed.
+     * @param cnfl the conflict clause in case propagation fails.
+     * @return {@code true} if propagation succeeds.
+     */
+    boolean propagate_lb(final Rational c, final List<Lit> cnfl) {
+        assert cnfl.isEmpty();
+        assert sums_consistent();
+        return c.isPositive() ? propagate_row_lb(cnfl) : propagate_row_ub(cnfl);
     }
 
     /**
      * Notifies, for propagation purposes, this tableau row that the upper bound
-     * of variable {@code x_i} has changed.
+     * of one of its variables has changed.
      *
-     * @param x_i the variable whose upper bound has changed.
+     * @param c the coefficient of the variable whose upper bound has changed.
      * @param cnfl the conflict clause in case propagation fails.
      * @return {@code true} if propagation succeeds.
      */
-    boolean propagate_ub(final int x_i, final List<Lit> cnfl) {
+    boolean propagate_ub(final Rational c, final List<Lit> cnfl) {
         assert cnfl.isEmpty();
-        // we make room for the first literal..
-        cnfl.add(new Lit(0));
-        if (l.vars.get(x_i).isPositive()) {
-            InfRational ub = new InfRational();
-            for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-                if (term.getValue().isPositive()) {
-                    if (th.ub(term.getIntKey()).rat.isPositiveInfinite()) {
-                        // nothing to propagate..
-                        cnfl.clear();
-                        return true;
-                    } else {
-                        ub.add(th.ub(term.getIntKey()).times(term.getValue()));
-                        cnfl.add(th.bounds[ub_index(term.getIntKey())].reason.not());
-                    }
-                } else if (term.getValue().isNegative()) {
-                    if (th.lb(term.getIntKey()).rat.isNegativeInfinite()) {
-                        // nothing to propagate..
-                        cnfl.clear();
-                        return true;
-                    } else {
-                        ub.add(th.lb(term.getIntKey()).times(term.getValue()));
-                        cnfl.add(th.bounds[lb_index(term.getIntKey())].reason.not());
-                    }
-                }
-            }
+        assert sums_consistent();
+        return c.isPositive() ? propagate_row_ub(cnfl) : propagate_row_lb(cnfl);
+    }
 
-            if (ub.lt(th.ub(x))) {
-                for (Assertion c : th.a_watches[x]) {
-                    if (ub.lt(c.v)) {
-                        switch (c.op) {
-                        case LEq: // the assertion is satisfied..
-                            cnfl.set(0, new Lit(c.b));
-                            switch (th.sat.value(c.b)) {
-                            case False: // we have a propositional inconsistency..
-                                return false;
-                            case Undefined: // we propagate information to the sat core..
-                                th.sat.record(cnfl.toArray(new Lit[cnfl.size()]));
-                            }
-                            break;
-                        case GEq: // the assertion is unsatisfable..
-                            cnfl.set(0, new Lit(c.b, false));
-                            switch (th.sat.value(c.b)) {
-                            case True: // we have a propositional inconsistency..
-                                return false;
-                            case Undefined: // we propagate information to the sat core..
-                                th.sat.record(cnfl.toArray(new Lit[cnfl.size()]));
-                            }
-                            break;
-                        }
-                    }
-                }
+    /**
+     * Propagates the lower bound of the linear expression, which might have
+     * increased, to the strongest assertions on the basic variable.
+     */
+    private boolean propagate_row_lb(final List<Lit> cnfl) {
+        if (lb_infs > 0) {
+            return true; // nothing to propagate..
+        }
+        final InfRational lb = lb_sum;
+
+        if (th.bounds.lt(lb_index(x), lb)) {
+            final Assertion falsified = th.a_watches[x].falsified_by_lb(lb);
+            if (falsified != null && !propagate(new Lit(falsified.b, false), cnfl, true)) {
+                return false;
             }
-        } else {
-            InfRational lb = new InfRational();
-            for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-                if (term.getValue().isPositive()) {
-                    if (th.lb(term.getIntKey()).rat.isNegativeInfinite()) {
-                        // nothing to propagate..
-                        cnfl.clear();
-                        return true;
-                    } else {
-                        lb.add(th.lb(term.getIntKey()).times(term.getValue()));
-                        cnfl.add(th.bounds[lb_index(term.getIntKey())].reason.not());
-                    }
-                } else if (term.getValue().isNegative()) {
-                    if (th.ub(term.getIntKey()).rat.isPositiveInfinite()) {
-                        // nothing to propagate..
-                        cnfl.clear();
-                        return true;
-                    } else {
-                        lb.add(th.ub(term.getIntKey()).times(term.getValue()));
-                        cnfl.add(th.bounds[ub_index(term.getIntKey())].reason.not());
-                    }
-                }
+            final Assertion satisfied = th.a_watches[x].satisfied_by_lb(lb);
+            if (satisfied != null && !propagate(new Lit(satisfied.b), cnfl, true)) {
+                return false;
             }
+        }
+
+        cnfl.clear();
+        return true;
+    }
 
-            if (lb.gt(th.lb(x))) {
-                for (Assertion c : th.a_watches[x]) {
-                    if (lb.gt(c.v)) {
-                        switch (c.op) {
-                        case LEq: // the assertion is unsatisfable..
-                            cnfl.set(0, new Lit(c.b, false));
-                            switch (th.sat.value(c.b)) {
-                            case True: // we have a propositional inconsistency..
-                                return false;
-                            case Undefined: // we propagate information to the sat core..
-                                th.sat.record(cnfl.toArray(new Lit[cnfl.size()]));
-                            }
-                            break;
-                        case GEq: // the assertion is satisfied..
-                            cnfl.set(0, new Lit(c.b));
-                            switch (th.sat.value(c.b)) {
-                            case False: // we have a propositional inconsistency..
-                                return false;
-                            case Undefined: // we propagate information to the sat core..
-                                th.sat.record(cnfl.toArray(new Lit[cnfl.size()]));
-                            }
-                            break;
-                        }
-                    }
-                }
+    /**
+     * Propagates the upper bound of the linear expression, which might have
+     * decreased, to the strongest assertions on the basic variable.
+     */
+    private boolean propagate_row_ub(final List<Lit> cnfl) {
+        if (ub_infs > 0) {
+            return true; // nothing to propagate..
+        }
+        final InfRational ub = ub_sum;
+
+        if (th.bounds.gt(ub_index(x), ub)) {
+            final Assertion falsified = th.a_watches[x].falsified_by_ub(ub);
+            if (falsified != null && !propagate(new Lit(falsified.b, false), cnfl, false)) {
+                return false;
+            }
+            final Assertion satisfied = th.a_watches[x].satisfied_by_ub(ub);
+            if (satisfied != null && !propagate(new Lit(satisfied.b), cnfl, false)) {
+                return false;
             }
         }
 
@@ -281,8 +248,52 @@ class Row {
         return true;
     }
 
+    /**
+     * Propagates the given literal, implied by the lower (upper) bound of the
+     * linear expression, to the sat core.
+     */
+    private boolean propagate(final Lit p, final List<Lit> cnfl, final boolean lower) {
+        if (cnfl.isEmpty()) {
+            explain(cnfl, lower);
+        }
+        cnfl.set(0, p);
+        switch (th.sat.value(p)) {
+        case False: // we have a propositional inconsistency..
+            return false;
+        case Undefined: // we propagate information to the sat core..
+            th.sat.record(cnfl.toArray(new Lit[cnfl.size()]));
+        }
+        return true;
+    }
+
+    /**
+     * Fills the given clause, leaving room for the propagated literal, with
+     * the negation of the reasons of the bounds from which the lower (upper)
+     * bound of the linear expression has been computed. The explanation is
+     * built only once something has to be propagated.
+     */
+    private void explain(final List<Lit> cnfl, final boolean lower) {
+        cnfl.add(null); // we make room for the first literal..
+        for (Entry e = first; e != null; e = e.row_next) {
+            cnfl.add(th.reasons[e.coeff.isPositive() == lower ? lb_index(e.var) : ub_index(e.var)].not());
+        }
+    }
+
+    /**
+     * Checks, for debugging purposes, whether the cached implied bounds are
+     * consistent with the current bounds of the variables.
+     */
+    private boolean sums_consistent() {
+        final InfRational c_lb_sum = new InfRational(lb_sum);
+        final InfRational c_ub_sum = new InfRational(ub_sum);
+        final int c_lb_infs = lb_infs;
+        final int c_ub_infs = ub_infs;
+        init();
+        return c_lb_infs == lb_infs && c_ub_infs == ub_infs && c_lb_sum.eq(lb_sum) && c_ub_sum.eq(ub_sum);
+    }
+
     @Override
     public String toString() {
-        return "x" + x + " == " + l.toString();
+        return "x" + x + " == " + lin().toString();
     }
 }
@@ -0,0 +1,684 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.lra;
+
+import static it.cnr.istc.pst.semitone.sat.Sat.FALSE_var;
+import static it.cnr.istc.pst.semitone.sat.Sat.TRUE_var;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import it.cnr.istc.pst.semitone.sat.LBool;
+import it.cnr.istc.pst.semitone.sat.Lit;
+import it.cnr.istc.pst.semitone.sat.Sat;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+/**
+ * This class is used for loading problems in the SMT-LIB2 format, restricted
+ * to the QF_LRA and QF_LIA logics (the latter relaxed to linear real
+ * arithmetic), into a {@link Sat} network and an {@link LRATheory}. The input
+ * is tokenized incrementally and each command is executed as soon as it is
+ * read, so that the whole file is never materialized.
+ * <p>
+ * Since the network does not perform search, each {@code (check-sat)} command
+ * produces {@link LBool#False} if propagation proves the assertions
+ * inconsistent and {@link LBool#Undefined} otherwise. Assertion scopes are
+ * implemented through activation literals which are assumed by the
+ * {@code (check-sat)} commands and permanently negated by the {@code (pop)}
+ * commands.
+ *
+ * @author Riccardo De Benedictis
+ */
+public class SMTLIB2Reader {
+
+    private static final int EOF = -1;
+    private static final int LPAREN = 0;
+    private static final int RPAREN = 1;
+    private static final int SYMBOL = 2;
+    private static final int NUMERAL = 3;
+    private static final int DECIMAL = 4;
+    private static final int STRING = 5;
+    private static final int KEYWORD = 6;
+    private static final int MAX_LONG_DIGITS = 18; // numbers with up to these many digits fit into a long..
+    private final Sat sat;
+    private final LRATheory lra;
+    private final Map<String, Object> symbols = new Object2ObjectOpenHashMap<>(); // the declared symbols (name to either a literal or a linear expression)..
+    private final Deque<List<String>> scopes = new ArrayDeque<>(); // for each assertion scope, the symbols declared within it..
+    private final IntArrayList scope_vars = new IntArrayList(); // for each assertion scope, its activation variable..
+    private final List<LBool> results = new ArrayList<>();
+    private Reader in;
+    private final char[] buf = new char[8192];
+    private int buf_pos = 0;
+    private int buf_len = 0;
+    private final StringBuilder text = new StringBuilder(); // the text of the last token..
+    private int token; // the last token..
+    private boolean exit;
+    private boolean consistent = true; // whether the assertions are trivially inconsistent..
+
+    public SMTLIB2Reader(final Sat sat, final LRATheory lra) {
+        this.sat = sat;
+        this.lra = lra;
+        scopes.push(new ArrayList<>());
+    }
+
+    /**
+     * Reads and executes the SMT-LIB2 commands from the given reader.
+     *
+     * @param in the reader of the SMT-LIB2 commands.
+     * @return the results of the {@code (check-sat)} commands.
+     * @throws IOException if the input cannot be read or is malformed.
+     */
+    public List<LBool> read(final Reader in) throws IOException {
+        assert sat.rootLevel();
+        this.in = in;
+        exit = false;
+        results.clear();
+        while (!exit && next() != EOF) {
+            expect(LPAREN);
+            command();
+        }
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Returns the variable associated to the given declared symbol. Boolean
+     * symbols are associated to propositional variables while arithmetic
+     * symbols are associated to linear real arithmetic variables.
+     *
+     * @param name the name of the symbol.
+     * @return the variable associated to the symbol.
+     */
+    public int var(final String name) {
+        Object v = symbols.get(name);
+        if (v instanceof Lit) {
+            return ((Lit) v).v;
+        } else if (v instanceof Lin && ((Lin) v).size() == 1) {
+            return ((Lin) v).var(0);
+        } else {
+            throw new IllegalArgumentException("unknown variable: " + name);
+        }
+    }
+
+    private void command() throws IOException {
+        expect(next(), SYMBOL);
+        switch (text.toString()) {
+        case "declare-fun":
+            declareFun(true);
+            break;
+        case "declare-const":
+            declareFun(false);
+            break;
+        case "define-fun":
+            defineFun();
+            break;
+        case "assert":
+            next();
+            assertTerm();
+            expect(next(), RPAREN);
+            break;
+        case "push":
+            for (int n = numeral(); n > 0; n--) {
+                scope_vars.push(sat.newVar());
+                scopes.push(new ArrayList<>());
+            }
+            expect(next(), RPAREN);
+            break;
+        case "pop":
+            for (int n = numeral(); n > 0; n--) {
+                if (scope_vars.isEmpty()) {
+                    throw new IOException("cannot pop the root assertion scope");
+                }
+                // the assertions of the popped scope are permanently disabled..
+                boolean nc = sat.newClause(new Lit(scope_vars.popInt(), false));
+                assert nc;
+                for (String name : scopes.pop()) {
+                    symbols.remove(name);
+                }
+            }
+            expect(next(), RPAREN);
+            break;
+        case "check-sat":
+            expect(next(), RPAREN);
+            results.add(checkSat());
+            break;
+        case "exit":
+            expect(next(), RPAREN);
+            exit = true;
+            break;
+        default: // set-logic, set-info, set-option, get-model, etc. are ignored..
+            skip();
+            break;
+        }
+    }
+
+    private void declareFun(final boolean args) throws IOException {
+        expect(next(), SYMBOL);
+        final String name = text.toString();
+        if (args) {
+            expect(next(), LPAREN);
+            expect(next(), RPAREN); // only constants are allowed in quantifier-free linear arithmetic..
+        }
+        expect(next(), SYMBOL);
+        switch (text.toString()) {
+        case "Bool":
+            declare(name, new Lit(sat.newVar()));
+            break;
+        case "Real":
+        case "Int":
+            declare(name, new Lin(lra.newVar()));
+            break;
+        default:
+            throw new IOException("unsupported sort: " + text);
+        }
+        expect(next(), RPAREN);
+    }
+
+    private void defineFun() throws IOException {
+        expect(next(), SYMBOL);
+        final String name = text.toString();
+        expect(next(), LPAREN);
+        expect(next(), RPAREN); // only constants are allowed in quantifier-free linear arithmetic..
+        expect(next(), SYMBOL); // the sort is inferred from the body..
+        next();
+        declare(name, term());
+        expect(next(), RPAREN);
+    }
+
+    private void declare(final String name, final Object value) throws IOException {
+        if (symbols.put(name, value) != null) {
+            throw new IOException("symbol already declared: " + name);
+        }
+        scopes.peek().add(name);
+    }
+
+    private LBool checkSat() {
+        if (!consistent || !sat.check()) {
+            return LBool.False;
+        }
+        if (!scope_vars.isEmpty()) {
+            final Lit[] asms = new Lit[scope_vars.size()];
+            for (int i = 0; i < asms.length; i++) {
+                asms[i] = new Lit(scope_vars.getInt(i));
+            }
+            if (!sat.check(asms)) {
+                return LBool.False;
+            }
+        }
+        return LBool.Undefined;
+    }
+
+    /**
+     * Parses the term starting with the current token and asserts it. Top
+     * level conjunctions and disjunctions are directly translated into clauses
+     * without introducing gate variables.
+     */
+    private void assertTerm() throws IOException {
+        if (token == LPAREN) {
+            expect(next(), SYMBOL);
+            switch (text.toString()) {
+            case "and":
+                while (next() != RPAREN) {
+                    assertTerm();
+                }
+                return;
+            case "or":
+                final List<Lit> lits = new ArrayList<>();
+                while (next() != RPAREN) {
+                    lits.add(bool(term()));
+                }
+                addClause(lits);
+                return;
+            default:
+                final List<Lit> lit = new ArrayList<>(1);
+                lit.add(bool(application()));
+                addClause(lit);
+                return;
+            }
+        }
+        final List<Lit> lit = new ArrayList<>(1);
+        lit.add(bool(term()));
+        addClause(lit);
+    }
+
+    private void addClause(final List<Lit> lits) {
+        if (!scope_vars.isEmpty()) {
+            lits.add(new Lit(scope_vars.topInt(), false));
+        }
+        if (!sat.newClause(lits.toArray(new Lit[lits.size()]))) {
+            consistent = false;
+        }
+    }
+
+    /**
+     * Parses the term starting with the current token, returning either a
+     * {@link Lit} or a {@link Lin}.
+     */
+    private Object term() throws IOException {
+        switch (token) {
+        case NUMERAL:
+            if (text.length() <= MAX_LONG_DIGITS) {
+                return new Lin(new Rational(Long.parseLong(text.toString())));
+            }
+            return new Lin(new Rational(new BigInteger(text.toString()), BigInteger.ONE));
+        case DECIMAL:
+            final int dot = text.indexOf(".");
+            final int frac_digits = text.length() - dot - 1;
+            text.deleteCharAt(dot);
+            if (text.length() <= MAX_LONG_DIGITS) { // both the numerator and the denominator fit into a long..
+                long den = 1;
+                for (int i = 0; i < frac_digits; i++) {
+                    den *= 10;
+                }
+                return new Lin(new Rational(Long.parseLong(text.toString()), den));
+            }
+            return new Lin(new Rational(new BigInteger(text.toString()), BigInteger.TEN.pow(frac_digits)));
+        case SYMBOL:
+            switch (text.toString()) {
+            case "true":
+                return new Lit(TRUE_var);
+            case "false":
+                return new Lit(FALSE_var);
+            default:
+                final Object v = symbols.get(text.toString());
+                if (v == null) {
+                    throw new IOException("unknown symbol: " + text);
+                }
+                if (v instanceof Lin) { // linear expressions are mutable, hence we return a copy..
+                    return new Lin((Lin) v);
+                }
+                return v;
+            }
+        case LPAREN:
+            expect(next(), SYMBOL);
+            return application();
+        default:
+            throw new IOException("unexpected token: " + text);
+        }
+    }
+
+    /**
+     * Parses the arguments of the application whose function symbol is the
+     * current token, consuming the closing parenthesis.
+     */
+    private Object application() throws IOException {
+        final String f = text.toString();
+        switch (f) {
+        case "let":
+            return let();
+        case "!": { // annotations are ignored..
+            next();
+            final Object t = term();
+            skip();
+            return t;
+        }
+        case "not": {
+            next();
+            final Lit arg = bool(term());
+            expect(next(), RPAREN);
+            return arg.not();
+        }
+        case "and":
+            return new Lit(sat.newConj(boolArgs()));
+        case "or":
+            return new Lit(sat.newDisj(boolArgs()));
+        case "=>": {
+            final Lit[] args = boolArgs();
+            for (int i = 0; i < args.length - 1; i++) {
+                args[i] = args[i].not();
+            }
+            return new Lit(sat.newDisj(args));
+        }
+        case "xor": {
+            final Lit[] args = boolArgs();
+            Lit x = args[0];
+            for (int i = 1; i < args.length; i++) {
+                x = new Lit(sat.newEq(x, args[i]), false);
+            }
+            return x;
+        }
+        case "ite": {
+            next();
+            final Lit c = bool(term());
+            next();
+            final Object t = term();
+            next();
+            final Object e = term();
+            expect(next(), RPAREN);
+            if (!(t instanceof Lit) || !(e instanceof Lit)) {
+                throw new IOException("arithmetic if-then-else terms are not supported");
+            }
+            return new Lit(sat.newDisj(new Lit(sat.newConj(c, (Lit) t)), new Lit(sat.newConj(c.not(), (Lit) e))));
+        }
+        case "distinct":
+            return distinct();
+        case "=":
+        case "<":
+        case "<=":
+        case ">=":
+        case ">":
+            return relation(f);
+        case "+": {
+            final Lin l = new Lin();
+            while (next() != RPAREN) {
+                l.add(arith(term()));
+            }
+            return l;
+        }
+        case "-": {
+            next();
+            final Lin l = new Lin();
+            l.add(arith(term()));
+            if (next() == RPAREN) {
+                l.mult(-1);
+                return l;
+            }
+            do {
+                l.sub(arith(term()));
+            } while (next() != RPAREN);
+            return l;
+        }
+        case "*": {
+            next();
+            Lin l = arith(term());
+            while (next() != RPAREN) {
+                final Lin r = arith(term());
+                if (l.isEmpty()) {
+                    r.mult(l.known_term);
+                    l = r;
+                } else if (r.isEmpty()) {
+                    l.mult(r.known_term);
+                } else {
+                    throw new IOException("non-linear terms are not supported");
+                }
+            }
+            return l;
+        }
+        case "/": {
+            next();
+            final Lin l = arith(term());
+            while (next() != RPAREN) {
+                final Lin r = arith(term());
+                if (!r.isEmpty() || r.known_term.eq(0)) {
+                    throw new IOException("non-linear terms are not supported");
+                }
+                l.div(r.known_term);
+            }
+            return l;
+        }
+        case "to_real":
+        case "to_int": {
+            next();
+            final Object arg = term();
+            expect(next(), RPAREN);
+            return arith(arg);
+        }
+        default:
+            throw new IOException("unsupported function: " + f);
+        }
+    }
+
+    private Object let() throws IOException {
+        final List<String> names = new ArrayList<>();
+        final List<Object> prevs = new ArrayList<>();
+        final List<Object> vals = new ArrayList<>();
+        expect(next(), LPAREN);
+        while (next() != RPAREN) {
+            expect(LPAREN);
+            expect(next(), SYMBOL);
+            names.add(text.toString());
+            next();
+            vals.add(term());
+            expect(next(), RPAREN);
+        }
+        // bindings are parallel, hence they are made visible only after all of them are parsed..
+        for (int i = 0; i < names.size(); i++) {
+            prevs.add(symbols.put(names.get(i), vals.get(i)));
+        }
+        next();
+        final Object body = term();
+        expect(next(), RPAREN);
+        for (int i = names.size() - 1; i >= 0; i--) {
+            if (prevs.get(i) == null) {
+                symbols.remove(names.get(i));
+            } else {
+                symbols.put(names.get(i), prevs.get(i));
+            }
+        }
+        return body;
+    }
+
+    private Lit relation(final String f) throws IOException {
+        next();
+        Object l = term();
+        final List<Lit> lits = new ArrayList<>();
+        while (next() != RPAREN) {
+            final Object r = term();
+            if (l instanceof Lit && r instanceof Lit) {
+                switch (f) {
+                case "=":
+                    lits.add(new Lit(sat.newEq((Lit) l, (Lit) r)));
+                    break;
+                default:
+                    throw new IOException("arithmetic relation among boolean terms: " + f);
+                }
+            } else {
+                final Lin l_xpr = new Lin();
+                l_xpr.add(arith(l));
+                l_xpr.sub(arith(r));
+                final Lin zero = new Lin();
+                switch (f) {
+                case "=":
+                    lits.add(new Lit(lra.newEq(l_xpr, zero)));
+                    break;
+                case "<":
+                    lits.add(new Lit(lra.newLt(l_xpr, zero)));
+                    break;
+                case "<=":
+                    lits.add(new Lit(lra.newLEq(l_xpr, zero)));
+                    break;
+                case ">=":
+                    lits.add(new Lit(lra.newGEq(l_xpr, zero)));
+                    break;
+                case ">":
+                    lits.add(new Lit(lra.newGt(l_xpr, zero)));
+                    break;
+                default:
+                    throw new AssertionError(f);
+                }
+            }
+            l = r;
+        }
+        return lits.size() == 1 ? lits.get(0) : new Lit(sat.newConj(lits.toArray(new Lit[lits.size()])));
+    }
+
+    /**
+     * Parses the arguments of a {@code distinct} term, returning the
+     * conjunction of the disequalities between each pair of them.
+     */
+    private Lit distinct() throws IOException {
+        final List<Object> args = new ArrayList<>();
+        while (next() != RPAREN) {
+            args.add(term());
+        }
+        final List<Lit> lits = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            for (int j = i + 1; j < args.size(); j++) {
+                final Object l = args.get(i);
+                final Object r = args.get(j);
+                if (l instanceof Lit && r instanceof Lit) {
+                    lits.add(new Lit(sat.newEq((Lit) l, (Lit) r), false));
+                } else {
+                    final Lin l_xpr = new Lin();
+                    l_xpr.add(arith(l));
+                    l_xpr.sub(arith(r));
+                    lits.add(new Lit(lra.newEq(l_xpr, new Lin()), false));
+                }
+            }
+        }
+        if (lits.isEmpty()) {
+            return new Lit(TRUE_var);
+        }
+        return lits.size() == 1 ? lits.get(0) : new Lit(sat.newConj(lits.toArray(new Lit[lits.size()])));
+    }
+
+    private Lit[] boolArgs() throws IOException {
+        final List<Lit> args = new ArrayList<>();
+        while (next() != RPAREN) {
+            args.add(bool(term()));
+        }
+        return args.toArray(new Lit[args.size()]);
+    }
+
+    private static Lit bool(final Object t) throws IOException {
+        if (t instanceof Lit) {
+            return (Lit) t;
+        }
+        throw new IOException("expected a boolean term: " + t);
+    }
+
+    private static Lin arith(final Object t) throws IOException {
+        if (t instanceof Lin) {
+            return (Lin) t;
+        }
+        throw new IOException("expected an arithmetic term: " + t);
+    }
+
+    private int numeral() throws IOException {
+        if (next() == RPAREN) {
+            buf_pos--; // we push back the closing parenthesis..
+            return 1;
+        }
+        expect(NUMERAL);
+        return Integer.parseInt(text.toString());
+    }
+
+    /**
+     * Skips the remaining of the current s-expression, consuming its closing
+     * parenthesis.
+     */
+    private void skip() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            switch (next()) {
+            case LPAREN:
+                depth++;
+                break;
+            case RPAREN:
+                depth--;
+                break;
+            case EOF:
+                throw new IOException("unexpected end of input");
+            }
+        }
+    }
+
+    private void expect(final int c_token) throws IOException {
+        expect(token, c_token);
+    }
+
+    private void expect(final int c_token, final int e_token) throws IOException {
+        if (c_token != e_token) {
+            throw new IOException("unexpected token: " + (c_token == EOF ? "end of input" : text.toString()));
+        }
+    }
+
+    private int read() throws IOException {
+        if (buf_pos == buf_len) {
+            buf_len = in.read(buf, 0, buf.length);
+            buf_pos = 0;
+            if (buf_len <= 0) {
+                buf_len = 0;
+                return EOF;
+            }
+        }
+        return buf[buf_pos++];
+    }
+
+    /**
+     * Reads the next token, storing its text.
+     *
+     * @return the next token.
+     */
+    private int next() throws IOException {
+        text.setLength(0);
+        int c = read();
+        while (true) {
+            if (c == ';') { // we skip the comment..
+                while (c != '\n' && c != EOF) {
+                    c = read();
+                }
+            } else if (Character.isWhitespace(c)) {
+                c = read();
+            } else {
+                break;
+            }
+        }
+        switch (c) {
+        case EOF:
+            return token = EOF;
+        case '(':
+            text.append('(');
+            return token = LPAREN;
+        case ')':
+            text.append(')');
+            return token = RPAREN;
+        case '|':
+            while ((c = read()) != '|') {
+                if (c == EOF) {
+                    throw new IOException("unterminated quoted symbol");
+                }
+                text.append((char) c);
+            }
+            return token = SYMBOL;
+        case '"':
+            while (true) {
+                c = read();
+                if (c == EOF) {
+                    throw new IOException("unterminated string literal");
+                }
+                if (c == '"') {
+                    if (buf_pos < buf_len && buf[buf_pos] == '"') { // an escaped quote..
+                        buf_pos++;
+                    } else {
+                        return token = STRING;
+                    }
+                }
+                text.append((char) c);
+            }
+        default:
+            int c_token = c == ':' ? KEYWORD : (c >= '0' && c <= '9') ? NUMERAL : SYMBOL;
+            while (c != EOF && c != '(' && c != ')' && c != ';' && c != '|' && c != '"' && !Character.isWhitespace(c)) {
+                text.append((char) c);
+                if (c == '.' && c_token == NUMERAL) {
+                    c_token = DECIMAL;
+                }
+                c = read();
+            }
+            if (c != EOF) {
+                buf_pos--; // we push back the delimiter..
+            }
+            return token = c_token;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.pb;
+
+import java.io.IOException;
+import java.io.Reader;
+import it.cnr.istc.pst.semitone.lra.Lin;
+import it.cnr.istc.pst.semitone.lra.Rational;
+import it.cnr.istc.pst.semitone.sat.Lit;
+import it.cnr.istc.pst.semitone.sat.Sat;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+
+/**
+ * This class is used for loading problems in the OPB (and WBO) pseudo-boolean
+ * formats into a {@link Sat} network and a {@link PBTheory}. The input is
+ * tokenized incrementally and the coefficients of each constraint are
+ * accumulated into a dense primitive array, indexed by variable, so that the
+ * linear expression of the constraint is built with a single insertion per
+ * variable, regardless of repetitions and negated literals.
+ *
+ * @author Riccardo De Benedictis
+ */
+public class OPBReader {
+
+    private final Sat sat;
+    private final PBTheory pb;
+    private int[] vars = new int[1]; // for each OPB variable, the corresponding propositional variable..
+    private int n_vars = 0; // the number of OPB variables..
+    private long[] coeffs = new long[1]; // for each OPB variable, its coefficient within the constraint being parsed..
+    private final IntArrayList touched = new IntArrayList(); // the OPB variables appearing within the constraint being parsed..
+    private long known_term; // the known term of the constraint being parsed..
+    private final Lin.Builder builder = new Lin.Builder(); // the builder of the linear expressions of the constraints..
+    private Lin objective; // the objective function, if any..
+    private final IntArrayList soft_vars = new IntArrayList(); // the controlling variables of the soft constraints..
+    private final LongArrayList soft_weights = new LongArrayList(); // the weights of the soft constraints..
+    private Reader in;
+    private final char[] buf = new char[8192];
+    private int buf_pos = 0;
+    private int buf_len = 0;
+    private final StringBuilder text = new StringBuilder(); // the text of the last word..
+
+    public OPBReader(final Sat sat, final PBTheory pb) {
+        this.sat = sat;
+        this.pb = pb;
+    }
+
+    /**
+     * Reads the OPB (or WBO) problem from the given reader, adding its
+     * variables and its hard constraints to the network. Soft constraints are
+     * created but not enforced, their controlling variables being available
+     * through {@link #softVars()}.
+     *
+     * @param in the reader of the OPB problem.
+     * @return {@code false} if some trivial inconsistency is recognized while
+     * adding the hard constraints.
+     * @throws IOException if the input cannot be read or is malformed.
+     */
+    public boolean read(final Reader in) throws IOException {
+        assert sat.rootLevel();
+        this.in = in;
+        boolean consistent = true;
+        int c;
+        while ((c = skipWhitespaces()) != -1) {
+            if (c == '*') { // a comment, possibly containing the size of the problem..
+                text.setLength(0);
+                while ((c = read()) != '\n' && c != -1) {
+                    text.append((char) c);
+                }
+                final int v_idx = text.indexOf("#variable=");
+                if (v_idx >= 0) {
+                    ensureVars(Integer.parseInt(text.substring(v_idx + 10).trim().split("\\s+")[0]));
+                }
+                continue;
+            }
+            if (c == 'm' || c == 's') {
+                word(c);
+                switch (text.toString()) {
+                case "min:":
+                    constraint(read());
+                    objective = lin();
+                    break;
+                case "soft:":
+                    number(skipWhitespaces()); // the upper bound on the cost of the soft constraints is ignored..
+                    expect(skipWhitespaces(), ';');
+                    break;
+                default:
+                    throw new IOException("unexpected word: " + text);
+                }
+                continue;
+            }
+            long weight = -1;
+            if (c == '[') {
+                weight = number(skipWhitespaces());
+                expect(skipWhitespaces(), ']');
+                c = read();
+            }
+            final String op = constraint(c);
+            final long rhs = number(skipWhitespaces());
+            expect(skipWhitespaces(), ';');
+            final Lin lin = lin();
+            final Lin right = new Lin(new Rational(rhs));
+            final int ctr;
+            switch (op) {
+            case ">=":
+                ctr = pb.newGEq(lin, right);
+                break;
+            case "<=":
+                ctr = pb.newLEq(lin, right);
+                break;
+            case "=":
+                ctr = pb.newEq(lin, right);
+                break;
+            default:
+                throw new IOException("unexpected relational operator: " + op);
+            }
+            if (weight < 0) {
+                consistent &= sat.newClause(new Lit(ctr));
+            } else {
+                soft_vars.add(ctr);
+                soft_weights.add(weight);
+            }
+        }
+        return consistent;
+    }
+
+    /**
+     * Returns the propositional variable corresponding to the given OPB
+     * variable.
+     *
+     * @param opb_var the index of an OPB variable (i.e., {@code i} for
+     * {@code xi}).
+     * @return the propositional variable corresponding to the OPB variable.
+     */
+    public int var(final int opb_var) {
+        return vars[opb_var];
+    }
+
+    /**
+     * Returns the objective function to be minimized, if any.
+     *
+     * @return the objective function to be minimized or {@code null} if the
+     * problem has no objective function.
+     */
+    public Lin objective() {
+        return objective;
+    }
+
+    /**
+     * Returns the controlling variables of the soft constraints.
+     *
+     * @return the controlling variables of the soft constraints.
+     */
+    public IntList softVars() {
+        return soft_vars;
+    }
+
+    /**
+     * Returns the weights of the soft constraints.
+     *
+     * @return the weights of the soft constraints.
+     */
+    public LongList softWeights() {
+        return soft_weights;
+    }
+
+    /**
+     * Parses the terms of a constraint, accumulating their coefficients, up to
+     * the relational operator (or up to the semicolon, for the objective
+     * function).
+     *
+     * @param c the first character of the constraint.
+     * @return the relational operator of the constraint.
+     */
+    private String constraint(int c) throws IOException {
+        known_term = 0;
+        c = skipWhitespaces(c);
+        while (true) {
+            switch (c) {
+            case ';':
+                return ";";
+            case '>':
+            case '<':
+            case '=':
+                word(c);
+                return text.toString();
+            case -1:
+                throw new IOException("unexpected end of input");
+            }
+            final long coeff = number(c);
+            c = skipWhitespaces();
+            boolean neg = false;
+            if (c == '~') {
+                neg = true;
+                c = read();
+            }
+            if (c != 'x') {
+                throw new IOException("expected a variable");
+            }
+            final int v = (int) number(read());
+            ensureVars(v);
+            c = skipWhitespaces();
+            if (c == 'x' || c == '~') {
+                throw new IOException("non-linear terms are not supported");
+            }
+            if (coeffs[v] == 0) {
+                touched.add(v);
+            }
+            if (neg) { // c * ~x = c - c * x..
+                known_term += coeff;
+                coeffs[v] -= coeff;
+            } else {
+                coeffs[v] += coeff;
+            }
+        }
+    }
+
+    /**
+     * Builds the linear expression of the last parsed constraint, resetting
+     * the accumulated coefficients.
+     */
+    private Lin lin() {
+        builder.add(known_term);
+        for (int i = 0; i < touched.size(); i++) {
+            final int v = touched.getInt(i);
+            if (coeffs[v] != 0) {
+                builder.add(vars[v], coeffs[v]);
+                coeffs[v] = 0;
+            }
+        }
+        touched.clear();
+        return builder.build();
+    }
+
+    private long number(int c) throws IOException {
+        boolean neg = false;
+        if (c == '+' || c == '-') {
+            neg = c == '-';
+            c = read();
+        }
+        if (c < '0' || c > '9') {
+            throw new IOException("expected a number");
+        }
+        long n = 0;
+        while (c >= '0' && c <= '9') {
+            try {
+                n = Math.addExact(Math.multiplyExact(n, 10), c - '0');
+            } catch (ArithmeticException ex) {
+                throw new IOException("number too large", ex);
+            }
+            c = read();
+        }
+        if (c != -1) {
+            buf_pos--; // we push back the delimiter..
+        }
+        return neg ? -n : n;
+    }
+
+    private void word(int c) throws IOException {
+        text.setLength(0);
+        while (c != -1 && !Character.isWhitespace(c) && !(c >= '0' && c <= '9') && c != '+' && c != '-') {
+            text.append((char) c);
+            c = read();
+        }
+        if (c != -1) {
+            buf_pos--; // we push back the delimiter..
+        }
+    }
+
+    private void expect(final int c, final char e) throws IOException {
+        if (c != e) {
+            throw new IOException("expected '" + e + "'");
+        }
+    }
+
+    private int skipWhitespaces() throws IOException {
+        return skipWhitespaces(read());
+    }
+
+    private int skipWhitespaces(int c) throws IOException {
+        while (c != -1 && Character.isWhitespace(c)) {
+            c = read();
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (buf_pos == buf_len) {
+            buf_len = in.read(buf, 0, buf.length);
+            buf_pos = 0;
+            if (buf_len <= 0) {
+                buf_len = 0;
+                return -1;
+            }
+        }
+        return buf[buf_pos++];
+    }
+
+    private void ensureVars(final int opb_vars) {
+        if (opb_vars > n_vars) {
+            if (opb_vars >= vars.length) {
+                final int capacity = Math.max(opb_vars + 1, (vars.length * 3) / 2 + 1);
+                int[] c_vars = new int[capacity];
+                System.arraycopy(vars, 0, c_vars, 0, vars.length);
+                vars = c_vars;
+                long[] c_coeffs = new long[capacity];
+                System.arraycopy(coeffs, 0, c_coeffs, 0, coeffs.length);
+                coeffs = c_coeffs;
+            }
+            sat.reserve(opb_vars - n_vars, 0);
+            while (n_vars < opb_vars) {
+                vars[++n_vars] = sat.newVar();
+            }
+        }
+    }
+}
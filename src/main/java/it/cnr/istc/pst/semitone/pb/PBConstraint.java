@@ -19,8 +19,10 @@ package it.cnr.istc.pst.semitone.pb;
 import it.cnr.istc.pst.semitone.lra.InfRational;
 import it.cnr.istc.pst.semitone.lra.Lin;
 import it.cnr.istc.pst.semitone.lra.Rational;
+import it.cnr.istc.pst.semitone.sat.LBool;
 import it.cnr.istc.pst.semitone.sat.Lit;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -42,8 +44,12 @@ public class PBConstraint {
         this.expr = expr;
         this.op = op;
         this.known_term = known_term;
-        expr.vars.int2ObjectEntrySet()
-                .forEach(var -> th.c_watches.computeIfAbsent(var.getIntKey(), k -> new ObjectArrayList<>()).add(this));
+        for (int i = 0; i < expr.size(); i++) {
+            th.c_watches.computeIfAbsent(expr.var(i), k -> {
+                th.sat.bind(k, th); // we listen to the assignments of the variable..
+                return new ObjectArrayList<>();
+            }).add(this);
+        }
         this.lb = lb;
         this.ub = ub;
     }
@@ -51,7 +57,8 @@ public class PBConstraint {
     boolean propagate(final Lit p, final List<Lit> cnfl) {
         if (p.v != b) {
             // we update the bounds..
-            Rational c = expr.vars.get(p.v);
+            th.n_bound_updates++;
+            Rational c = expr.get(p.v);
             if (c.isPositive()) {
                 if (p.sign) {
                     if (!th.layers.isEmpty()) {
@@ -85,69 +92,123 @@ public class PBConstraint {
 
         switch (op) {
             case LEq:
-                if (known_term.geq(ub)) {  // the constraint has become satisfied as a consequence of the bound update..
-                    switch (th.sat.value(b)) {
-                        case False: // inconsistency: the constraint must be not satisfied..
-                            // we generate an explanation for the inconsistency..
-                            break;
-                        case Undefined:
-                            break;
-                    }
-                } else if (known_term.lt(lb)) {  // the constraint has become unsatisfable as a consequence of the bound update..
-                    switch (th.sat.value(b)) {
-                        case True: // inconsistency: the constraint must be satisfied..
-                            // we generate an explanation for the inconsistency..
-                            break;
-                        case Undefined:
-                            break;
-                        default:
-                            throw new AssertionError(th.sat.value(b).name());
-                    }
-                } else { // we try to propagate something..
-                    switch (th.sat.value(b)) {
-                        case False:
-                            break;
-                        case True:
-                            break;
-                    }
+                if (known_term.geq(ub)) { // the constraint is satisfied..
+                    return enforce(new Lit(b), false, cnfl);
+                } else if (known_term.lt(lb)) { // the constraint is unsatisfable..
+                    return enforce(new Lit(b, false), true, cnfl);
+                }
+                switch (th.sat.value(b)) {
+                    case True: // the terms which would increase the lower bound too much are forbidden..
+                        return forbid(true, false, cnfl);
+                    case False: // the terms which would decrease the upper bound too much are forbidden..
+                        return forbid(false, true, cnfl);
+                    default:
+                        return true;
                 }
-                break;
             case GEq:
-                if (known_term.leq(lb)) {  // the constraint has become satisfied as a consequence of the bound update..
-                    switch (th.sat.value(b)) {
-                        case False: // inconsistency: the constraint must be not satisfied..
-                            // we generate an explanation for the inconsistency..
-                            break;
-                        case Undefined:
-                            break;
-                        default:
-                            throw new AssertionError(th.sat.value(b).name());
-                    }
-                } else if (known_term.gt(ub)) {  // the constraint has become unsatisfable as a consequence of the bound update..
-                    switch (th.sat.value(b)) {
-                        case True: // inconsistency: the constraint must be satisfied..
-                            // we generate an explanation for the inconsistency..
-                            break;
-                        case Undefined:
-                            break;
-                        default:
-                            throw new AssertionError(th.sat.value(b).name());
-                    }
-                } else { // we try to propagate something..
-                    switch (th.sat.value(b)) {
-                        case False:
-                            break;
-                        case True:
-                            break;
-                    }
+                if (known_term.leq(lb)) { // the constraint is satisfied..
+                    return enforce(new Lit(b), true, cnfl);
+                } else if (known_term.gt(ub)) { // the constraint is unsatisfable..
+                    return enforce(new Lit(b, false), false, cnfl);
+                }
+                switch (th.sat.value(b)) {
+                    case True: // the terms which would decrease the upper bound too much are forbidden..
+                        return forbid(false, false, cnfl);
+                    case False: // the terms which would increase the lower bound too much are forbidden..
+                        return forbid(true, true, cnfl);
+                    default:
+                        return true;
                 }
-                break;
             default:
                 throw new AssertionError(op.name());
         }
+    }
+
+    /**
+     * Enforces the given literal, on the controlling variable, which is implied
+     * by the current lower (upper) bound.
+     */
+    private boolean enforce(final Lit p, final boolean lower, final List<Lit> cnfl) {
+        switch (th.sat.value(p)) {
+            case False: // we have an inconsistency..
+                cnfl.add(p);
+                explain(lower, cnfl);
+                return false;
+            case Undefined: // we propagate information to the sat core..
+                final List<Lit> lits = new ArrayList<>();
+                lits.add(p);
+                explain(lower, lits);
+                th.sat.record(lits.toArray(new Lit[lits.size()]));
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Forbids, given the value of the controlling variable, the assignments of
+     * the unassigned variables which would increase the lower bound (decrease
+     * the upper bound) beyond the known term.
+     *
+     * @param lower whether the lower bound, rather than the upper bound, is
+     * the one that must not cross the known term.
+     * @param negated whether the controlling variable is false.
+     */
+    private boolean forbid(final boolean lower, final boolean negated, final List<Lit> cnfl) {
+        List<Lit> expl = null; // the explanation is built only once something has to be propagated..
+        for (int i = 0; i < expr.size(); i++) {
+            final int v = expr.var(i);
+            if (th.sat.value(v) != LBool.Undefined) {
+                continue;
+            }
+            final Rational c = expr.coeff(i);
+            final boolean forbidden;
+            if (lower) { // the assignment increasing the lower bound by |c|..
+                final Rational c_lb = c.isPositive() ? lb.plus(c) : lb.minus(c);
+                forbidden = negated ? known_term.leq(c_lb) : known_term.lt(c_lb);
+            } else { // the assignment decreasing the upper bound by |c|..
+                final Rational c_ub = c.isPositive() ? ub.minus(c) : ub.plus(c);
+                forbidden = negated ? known_term.geq(c_ub) : known_term.gt(c_ub);
+            }
+            if (forbidden) {
+                if (expl == null) {
+                    expl = new ArrayList<>();
+                    expl.add(null); // we make room for the propagated literal..
+                    expl.add(new Lit(b, negated)); // either the controlling variable has a different value..
+                    explain(lower, expl); // or the bound is not what it is..
+                }
+                // the literal increasing the lower bound (decreasing the upper bound) is forbidden..
+                expl.set(0, new Lit(v, c.isPositive() != lower));
+                th.sat.record(expl.toArray(new Lit[expl.size()]));
+            }
+        }
         return true;
     }
 
+    /**
+     * Adds to the given clause the negation of the assignments which increased
+     * the lower bound (decreased the upper bound) of the linear expression.
+     */
+    private void explain(final boolean lower, final List<Lit> cls) {
+        for (int i = 0; i < expr.size(); i++) {
+            final int v = expr.var(i);
+            switch (th.sat.value(v)) {
+                case True:
+                    if (expr.coeff(i).isPositive() == lower) {
+                        cls.add(new Lit(v, false));
+                    }
+                    break;
+                case False:
+                    if (expr.coeff(i).isPositive() != lower) {
+                        cls.add(new Lit(v));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
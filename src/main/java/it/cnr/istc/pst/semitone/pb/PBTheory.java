@@ -47,6 +47,7 @@ public class PBTheory implements Theory {
     private final Int2ObjectMap<PBConstraint> v_cnstrs = new Int2ObjectOpenHashMap<>(); // the pseudo-boolean constraints (propositional variable to constraint) used for enforcing (negating) constraints..
     private final Object2IntMap<String> exprs = new Object2IntOpenHashMap<>(); // the already existing expressions (string to variable)..
     final Deque<Layer> layers = new ArrayDeque<>(); // we store the updated bounds..
+    long n_bound_updates = 0; // the number of updates of the bounds of the constraints..
 
     public PBTheory(Sat sat) {
         this.sat = sat;
@@ -83,9 +84,9 @@ public class PBTheory implements Theory {
 
         Rational lb = lb(l_xpr);
         Rational ub = ub(l_xpr);
-        if (c_right.gt(ub)) {
+        if (c_right.geq(ub)) {
             return TRUE_var; // the constraint is already satisfied..
-        } else if (c_right.leq(lb)) {
+        } else if (c_right.lt(lb)) {
             return FALSE_var; // the constraint is unsatisfable..
         }
 
@@ -109,9 +110,9 @@ public class PBTheory implements Theory {
 
         Rational lb = lb(l_xpr);
         Rational ub = ub(l_xpr);
-        if (c_right.lt(ub)) {
+        if (c_right.leq(lb)) {
             return TRUE_var; // the constraint is already satisfied..
-        } else if (c_right.geq(lb)) {
+        } else if (c_right.gt(ub)) {
             return FALSE_var; // the constraint is unsatisfable..
         }
 
@@ -131,9 +132,9 @@ public class PBTheory implements Theory {
 
         Rational lb = lb(l_xpr);
         Rational ub = ub(l_xpr);
-        if (c_right.leq(ub)) {
+        if (c_right.leq(lb)) {
             return TRUE_var; // the constraint is already satisfied..
-        } else if (c_right.gt(lb)) {
+        } else if (c_right.gt(ub)) {
             return FALSE_var; // the constraint is unsatisfable..
         }
 
@@ -153,14 +154,14 @@ public class PBTheory implements Theory {
      */
     public Rational lb(final Lin l) {
         Rational v = new Rational(l.known_term);
-        for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-            if (term.getValue().isPositive()) {
-                if (sat.value(term.getIntKey()) == LBool.True) {
-                    v.add(term.getValue()); // we increase the lower bound..
+        for (int i = 0; i < l.size(); i++) {
+            if (l.coeff(i).isPositive()) {
+                if (sat.value(l.var(i)) == LBool.True) {
+                    v.add(l.coeff(i)); // we increase the lower bound..
                 }
             } else {
-                if (sat.value(term.getIntKey()) != LBool.False) {
-                    v.add(term.getValue()); // we decrease the lower bound (notice that the term's constant is negative)..
+                if (sat.value(l.var(i)) != LBool.False) {
+                    v.add(l.coeff(i)); // we decrease the lower bound (notice that the term's constant is negative)..
                 }
             }
         }
@@ -175,24 +176,39 @@ public class PBTheory implements Theory {
      */
     public Rational ub(final Lin l) {
         Rational v = new Rational(l.known_term);
-        for (Int2ObjectMap.Entry<Rational> term : l.vars.int2ObjectEntrySet()) {
-            if (term.getValue().isPositive()) {
-                if (sat.value(term.getIntKey()) != LBool.False) {
-                    v.add(term.getValue()); // we increase the upper bound..
+        for (int i = 0; i < l.size(); i++) {
+            if (l.coeff(i).isPositive()) {
+                if (sat.value(l.var(i)) != LBool.False) {
+                    v.add(l.coeff(i)); // we increase the upper bound..
                 }
             } else {
-                if (sat.value(term.getIntKey()) == LBool.True) {
-                    v.add(term.getValue()); // we decrease the upper bound (notice that the term's constant is negative)..
+                if (sat.value(l.var(i)) == LBool.True) {
+                    v.add(l.coeff(i)); // we decrease the upper bound (notice that the term's constant is negative)..
                 }
             }
         }
         return v;
     }
 
+    /**
+     * Returns the number of updates of the bounds of the constraints performed
+     * so far.
+     *
+     * @return the number of bound updates performed so far.
+     */
+    public long boundUpdates() {
+        return n_bound_updates;
+    }
+
     @Override
     public boolean propagate(final Lit p, final List<Lit> cnfl) {
         assert cnfl.isEmpty();
-        return c_watches.get(p.v).stream().noneMatch(c -> !c.propagate(p, cnfl));
+        final PBConstraint c = v_cnstrs.get(p.v);
+        if (c != null && !c.propagate(p, cnfl)) {
+            return false;
+        }
+        final Collection<PBConstraint> cs = c_watches.get(p.v);
+        return cs == null || cs.stream().noneMatch(w -> !w.propagate(p, cnfl));
     }
 
     @Override
@@ -203,7 +219,7 @@ public class PBTheory implements Theory {
 
     @Override
     public void push() {
-        layers.add(new Layer());
+        layers.addFirst(new Layer());
     }
 
     @Override
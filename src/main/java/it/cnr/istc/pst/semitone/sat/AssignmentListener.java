@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.sat;
+
+/**
+ * A listener of the assignments of the propositional variables of a
+ * {@link Sat} network. Rather than being notified of each single assignment,
+ * listeners receive slices of the trail, i.e. of the chronological list of the
+ * assigned literals, encoded as integers. The variable and the sign of an
+ * encoded literal can be retrieved through {@link Sat#variable(int)} and
+ * {@link Sat#sign(int)}. The constant variables {@link Sat#FALSE_var} and
+ * {@link Sat#TRUE_var} are never notified.
+ * <p>
+ * The given array is the internal storage of the trail, hence it must not be
+ * modified and its content is meaningful only within the given range and only
+ * for the duration of the notification.
+ *
+ * @author Riccardo De Benedictis
+ */
+public interface AssignmentListener {
+
+    /**
+     * Notifies the listener that the literals between {@code from} (inclusive)
+     * and {@code to} (exclusive) have been assigned since the last
+     * notification. Assignments are notified once the constraints have been
+     * propagated, at the end of each {@link Sat#check()}.
+     *
+     * @param trail the encoded literals of the trail.
+     * @param from the index of the first newly assigned literal.
+     * @param to the index following the last newly assigned literal.
+     */
+    public void assigned(final int[] trail, final int from, final int to);
+
+    /**
+     * Notifies the listener that a backtracking step has brought the network
+     * to the given decision level, unassigning the (previously notified)
+     * literals between {@code from} (inclusive) and {@code to} (exclusive).
+     *
+     * @param level the current decision level.
+     * @param trail the encoded literals of the trail.
+     * @param from the index of the first unassigned literal.
+     * @param to the index following the last unassigned literal.
+     */
+    public void backtracked(final int level, final int[] trail, final int from, final int to);
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.sat;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class is used for loading problems in the DIMACS CNF format into a
+ * {@link Sat} network. The file is memory-mapped and parsed byte by byte into
+ * a primitive literal buffer, so that no intermediate string is created and
+ * each {@link Lit} object is shared among all the clauses containing it.
+ *
+ * @author Riccardo De Benedictis
+ */
+public class DIMACSReader {
+
+    private static final int WINDOW_SIZE = 1 << 30; // the size of the memory-mapped windows..
+    private final Sat sat;
+    private int[] vars = new int[1]; // for each DIMACS variable, the corresponding propositional variable..
+    private int n_vars = 0; // the number of DIMACS variables..
+    private Lit[] lits = new Lit[0]; // the literals of the propositional variables, indexed by their encoding..
+    private int[] c_lits = new int[16]; // the literals of the clause being parsed..
+    private int c_size = 0; // the number of literals of the clause being parsed..
+    private boolean consistent = true;
+    // the state of the parser, which survives across memory-mapped windows..
+    private boolean comment = false;
+    private boolean header = false;
+    private int header_nums = 0;
+    private boolean line_start = true;
+    private boolean in_num = false;
+    private boolean neg = false;
+    private int num = 0;
+    private boolean done = false;
+
+    public DIMACSReader(final Sat sat) {
+        this.sat = sat;
+    }
+
+    /**
+     * Reads the DIMACS CNF file at the given path, adding its variables and
+     * clauses to the network.
+     *
+     * @param path the path of the DIMACS CNF file.
+     * @return {@code false} if some trivial inconsistency is recognized while
+     * adding the clauses.
+     * @throws IOException if the file cannot be read.
+     */
+    public boolean read(final Path path) throws IOException {
+        assert sat.rootLevel();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = ch.size();
+            for (long pos = 0; pos < size && !done; pos += WINDOW_SIZE) {
+                final MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW_SIZE, size - pos));
+                while (buf.hasRemaining() && !done) {
+                    parse(buf.get());
+                }
+            }
+        }
+        // we flush the last number and the last clause, if not terminated..
+        parse((byte) '\n');
+        if (c_size > 0) {
+            addClause();
+        }
+        return consistent;
+    }
+
+    /**
+     * Returns the propositional variable corresponding to the given DIMACS
+     * variable.
+     *
+     * @param dimacs_var the (positive) index of a DIMACS variable.
+     * @return the propositional variable corresponding to the DIMACS variable.
+     */
+    public int var(final int dimacs_var) {
+        return vars[dimacs_var];
+    }
+
+    /**
+     * Returns the number of DIMACS variables read so far.
+     *
+     * @return the number of DIMACS variables read so far.
+     */
+    public int nVars() {
+        return n_vars;
+    }
+
+    private void parse(final byte b) {
+        if (comment) {
+            if (b == '\n') {
+                comment = false;
+                line_start = true;
+            }
+            return;
+        }
+        if (b >= '0' && b <= '9') {
+            num = num * 10 + (b - '0');
+            in_num = true;
+            line_start = false;
+            return;
+        }
+        if (in_num) {
+            number(neg ? -num : num);
+            in_num = false;
+            neg = false;
+            num = 0;
+        }
+        switch (b) {
+        case '-':
+            neg = true;
+            break;
+        case 'c':
+            if (line_start) {
+                comment = true;
+            }
+            break;
+        case 'p':
+            if (line_start) {
+                header = true;
+            }
+            break;
+        case '%': // some benchmark suites terminate the files this way..
+            if (line_start) {
+                done = true;
+            }
+            break;
+        case '\n':
+            line_start = true;
+            return;
+        }
+        line_start = line_start && (b == ' ' || b == '\t' || b == '\r');
+    }
+
+    private void number(final int n) {
+        if (header) {
+            switch (header_nums++) {
+            case 0:
+                ensureVars(n);
+                break;
+            case 1:
+                header = false;
+                sat.reserve(0, n);
+                break;
+            }
+        } else if (n == 0) {
+            addClause();
+        } else {
+            final int v = n > 0 ? n : -n;
+            ensureVars(v);
+            if (c_size == c_lits.length) {
+                int[] c_c_lits = new int[(c_lits.length * 3) / 2 + 1];
+                System.arraycopy(c_lits, 0, c_c_lits, 0, c_lits.length);
+                c_lits = c_c_lits;
+            }
+            c_lits[c_size++] = n > 0 ? vars[v] << 1 : (vars[v] << 1) ^ 1;
+        }
+    }
+
+    private void addClause() {
+        if (!sat.newClause(c_lits, c_size, lits)) {
+            consistent = false;
+        }
+        c_size = 0;
+    }
+
+    private void ensureVars(final int dimacs_vars) {
+        if (dimacs_vars > n_vars) {
+            if (dimacs_vars >= vars.length) {
+                int[] c_vars = new int[dimacs_vars + 1];
+                System.arraycopy(vars, 0, c_vars, 0, vars.length);
+                vars = c_vars;
+            }
+            sat.reserve(dimacs_vars - n_vars, 0);
+            while (n_vars < dimacs_vars) {
+                final int v = sat.newVar();
+                vars[++n_vars] = v;
+                if ((v << 1) + 1 >= lits.length) {
+                    Lit[] c_lits = new Lit[Math.max((v << 1) + 2, (lits.length * 3) / 2 + 1)];
+                    System.arraycopy(lits, 0, c_lits, 0, lits.length);
+                    lits = c_lits;
+                }
+                lits[v << 1] = new Lit(v);
+                lits[(v << 1) ^ 1] = new Lit(v, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.sat;
+
+import static it.cnr.istc.pst.semitone.sat.Sat.TRUE_var;
+import static it.cnr.istc.pst.semitone.sat.Sat.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class is used for logging, in the binary DRAT format, the clauses
+ * learned by a {@link Sat} network, so that unsatisfiability results can be
+ * certified by an external checker. Propositional variable {@code v} is
+ * written as DIMACS variable {@code v - 1}, so that the numbering matches the
+ * one of a {@link DIMACSReader} loading the formula into a fresh network.
+ * <p>
+ * Theory lemmas cannot be derived by the checker, hence they are considered
+ * as trusted: if a lemma channel is provided, they are written there as DIMACS
+ * clauses, to be appended to the original formula before checking; otherwise,
+ * they are written into the proof as plain additions.
+ * <p>
+ * Clauses are encoded into large direct buffers which are written, once full,
+ * by a background thread while the network keeps filling a second buffer.
+ *
+ * @author Riccardo De Benedictis
+ */
+public class DRATProof implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 22;
+    private final Sink proof;
+    private final Sink lemmas;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "drat-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public DRATProof(final WritableByteChannel proof) {
+        this(proof, null, DEFAULT_BUFFER_SIZE);
+    }
+
+    public DRATProof(final WritableByteChannel proof, final WritableByteChannel lemmas) {
+        this(proof, lemmas, DEFAULT_BUFFER_SIZE);
+    }
+
+    public DRATProof(final WritableByteChannel proof, final WritableByteChannel lemmas, final int buffer_size) {
+        this.proof = new Sink(proof, buffer_size);
+        this.lemmas = lemmas != null ? new Sink(lemmas, buffer_size) : null;
+    }
+
+    /**
+     * Logs the addition of the given (learned) clause.
+     *
+     * @param lits the literals of the clause.
+     */
+    public void add(final Lit... lits) {
+        proof.binary('a', lits);
+    }
+
+    /**
+     * Logs the deletion of the given clause.
+     *
+     * @param lits the literals of the clause.
+     */
+    public void delete(final Lit... lits) {
+        proof.binary('d', lits);
+    }
+
+    /**
+     * Logs the given (trusted) theory lemma.
+     *
+     * @param lits the literals of the lemma.
+     */
+    public void lemma(final Lit... lits) {
+        if (lemmas != null) {
+            lemmas.text(lits);
+        } else {
+            proof.binary('a', lits);
+        }
+    }
+
+    /**
+     * Writes all the pending clauses and waits for their completion, without
+     * closing the underlying channels.
+     */
+    public void flush() {
+        proof.flush();
+        if (lemmas != null) {
+            lemmas.flush();
+        }
+        proof.await();
+        if (lemmas != null) {
+            lemmas.await();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            writer.shutdown();
+            proof.ch.close();
+            if (lemmas != null) {
+                lemmas.ch.close();
+            }
+        }
+    }
+
+    /**
+     * A double-buffered destination of encoded clauses.
+     */
+    private class Sink {
+
+        private final WritableByteChannel ch;
+        private ByteBuffer active;
+        private ByteBuffer passive;
+        private Future<?> pending;
+
+        private Sink(final WritableByteChannel ch, final int buffer_size) {
+            this.ch = ch;
+            this.active = ByteBuffer.allocateDirect(buffer_size);
+            this.passive = ByteBuffer.allocateDirect(buffer_size);
+        }
+
+        private void binary(final char op, final Lit[] lits) {
+            ensureRemaining(lits.length * 5 + 2); // each literal takes at most five bytes..
+            active.put((byte) op);
+            for (Lit l : lits) {
+                if (l.v > TRUE_var) { // constant literals are not part of the formula..
+                    int u = index(l) - 2;
+                    while ((u & ~0x7F) != 0) {
+                        active.put((byte) ((u & 0x7F) | 0x80));
+                        u >>>= 7;
+                    }
+                    active.put((byte) u);
+                }
+            }
+            active.put((byte) 0);
+        }
+
+        private void text(final Lit[] lits) {
+            ensureRemaining(lits.length * 12 + 2); // each literal takes at most eleven characters and a space..
+            for (Lit l : lits) {
+                if (l.v > TRUE_var) { // constant literals are not part of the formula..
+                    if (!l.sign) {
+                        active.put((byte) '-');
+                    }
+                    final int start = active.position();
+                    int u = l.v - 1;
+                    do {
+                        active.put((byte) ('0' + u % 10));
+                        u /= 10;
+                    } while (u != 0);
+                    // digits have been written in reverse order..
+                    for (int i = start, j = active.position() - 1; i < j; i++, j--) {
+                        final byte tmp = active.get(i);
+                        active.put(i, active.get(j));
+                        active.put(j, tmp);
+                    }
+                    active.put((byte) ' ');
+                }
+            }
+            active.put((byte) '0').put((byte) '\n');
+        }
+
+        private void ensureRemaining(final int bytes) {
+            if (active.remaining() < bytes) {
+                flush();
+                if (active.capacity() < bytes) { // a huge clause..
+                    await();
+                    active = ByteBuffer.allocateDirect(bytes);
+                }
+            }
+        }
+
+        /**
+         * Hands the active buffer to the background writer, waiting for the
+         * previous write to complete so as to reuse its buffer.
+         */
+        private void flush() {
+            await();
+            final ByteBuffer full = active;
+            active = passive;
+            passive = full;
+            full.flip();
+            pending = writer.submit(() -> {
+                try {
+                    while (full.hasRemaining()) {
+                        ch.write(full);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                full.clear();
+            });
+        }
+
+        private void await() {
+            if (pending != null) {
+                try {
+                    pending.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(ex);
+                } catch (ExecutionException ex) {
+                    throw ex.getCause() instanceof UncheckedIOException ? (UncheckedIOException) ex.getCause()
+                            : new IllegalStateException(ex.getCause());
+                } finally {
+                    pending = null;
+                }
+            }
+        }
+    }
+}
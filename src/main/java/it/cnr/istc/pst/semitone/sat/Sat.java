@@ -32,6 +32,7 @@ import java.util.stream.Stream;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
@@ -48,17 +49,26 @@ public class Sat {
     public static final int TRUE_var = 1;
     private static final int DEFAULT_INIT_SIZE = 16;
     private int n_vars = 0;
-    private final List<Clause> clauses = new ArrayList<>(); // collection of problem constraints..
+    private final ArrayList<Clause> clauses = new ArrayList<>(); // collection of problem constraints..
     private LBool[] assigns = new LBool[DEFAULT_INIT_SIZE]; // the current assignments..
     ClauseList[] watches = new ClauseList[DEFAULT_INIT_SIZE << 1]; // for each literal 'p', a list of constraints watching 'p'..
     private Clause[] reason = new Clause[DEFAULT_INIT_SIZE]; // for each variable, the constraint that implied its value..
     private int[] level = new int[DEFAULT_INIT_SIZE]; // for each variable, the decision level it was assigned..
-    private final Deque<Lit> trail = new ArrayDeque<>(); // the list of assignment in chronological order..
+    private final IntArrayList trail = new IntArrayList(); // the list of assignment (as encoded literals) in chronological order..
     private final IntArrayList trail_lim = new IntArrayList(); // separator indices for different decision levels in 'trail'..
     private final Deque<Lit> prop_q = new ArrayDeque<>(); // propagation queue..
     private final Collection<Theory> theories = new ArrayList<>();
     private final Int2ObjectMap<Collection<Theory>> binds = new Int2ObjectOpenHashMap<>();
     private final Object2IntMap<String> exprs = new Object2IntOpenHashMap<>(); // the already existing expressions (string to bool variable)..
+    private DRATProof proof; // the (optional) log of the learned clauses..
+    private final Collection<AssignmentListener> listeners = new ArrayList<>();
+    private int n_notified = 0; // the number of literals of the trail already notified to the listeners..
+    private long n_decisions = 0; // the number of assumed literals..
+    private long n_propagations = 0; // the number of propagated literals..
+    private long n_conflicts = 0; // the number of conflicts..
+    private long n_learned = 0; // the number of learned no-goods..
+    private long n_learned_lits = 0; // the overall number of literals within the learned no-goods..
+    private long n_theory_propagations = 0; // the number of theory lemmas recorded for propagation..
 
     public Sat() {
         int c_false = newVar();
@@ -71,7 +81,7 @@ public class Sat {
 
     public int newVar() {
         final int id = n_vars++;
-        ensureCapacity(id);
+        ensureCapacity(n_vars);
         assigns[id] = Undefined;
         watches[id << 1] = new ClauseList();
         watches[(id << 1) ^ 1] = new ClauseList();
@@ -115,6 +125,88 @@ public class Sat {
         }
     }
 
+    /**
+     * Creates a new clause representing a theory lemma, i.e. a clause which is
+     * not part of the input formula and which cannot be derived by resolution.
+     * If proof logging is enabled, the lemma is logged as trusted.
+     *
+     * @param lits the literals of the lemma.
+     * @return {@code false} if some trivial inconsistency is recognized.
+     */
+    public boolean newLemma(final Lit... lits) {
+        if (proof != null) {
+            proof.lemma(lits);
+        }
+        return newClause(lits);
+    }
+
+    /**
+     * Creates a new clause from an array of literals encoded as in
+     * {@link #index(Lit)}, without allocating intermediate objects for the
+     * discarded literals. The first {@code size} elements of the {@code lits}
+     * array are reordered by this procedure. Since literals are immutable, the
+     * clause is built upon the shared instances of the {@code pool} array.
+     *
+     * @param lits the encoded literals of the clause.
+     * @param size the number of literals of the clause.
+     * @param pool the literals, indexed by their encoding.
+     * @return {@code false} if some trivial inconsistency is recognized.
+     */
+    boolean newClause(final int[] lits, final int size, final Lit[] pool) {
+        IntArrays.quickSort(lits, 0, size);
+        int c_size = 0;
+        for (int i = 0; i < size; i++) {
+            final int l = lits[i];
+            if (c_size > 0 && (lits[c_size - 1] >>> 1) == (l >>> 1)) {
+                if (lits[c_size - 1] == l) {
+                    continue; // the literal is repeated..
+                } else {
+                    return true; // the clause represents a tautology..
+                }
+            }
+            switch (assigns[l >>> 1]) {
+            case True:
+                if ((l & 1) == 0) {
+                    return true; // the clause is already satisfied..
+                }
+                break;
+            case False:
+                if ((l & 1) == 1) {
+                    return true; // the clause is already satisfied..
+                }
+                break;
+            case Undefined:
+                lits[c_size++] = l;
+                break;
+            }
+        }
+        switch (c_size) {
+        case 0:
+            return false;
+        case 1:
+            return enqueue(pool[lits[0]], null);
+        default:
+            final Lit[] c_lits = new Lit[c_size];
+            for (int i = 0; i < c_size; i++) {
+                c_lits[i] = pool[lits[i]];
+            }
+            clauses.add(new Clause(this, c_lits));
+            return true;
+        }
+    }
+
+    /**
+     * Reserves room for the given number of variables and clauses, avoiding
+     * repeated resizing when the size of the problem is known in advance.
+     *
+     * @param n_vars the expected number of variables.
+     * @param n_clauses the expected number of clauses.
+     */
+    public void reserve(final int n_vars, final int n_clauses) {
+        ensureCapacity(this.n_vars + n_vars);
+        clauses.ensureCapacity(clauses.size() + n_clauses);
+    }
+
     public int newEq(final Lit l, final Lit r) {
         assert rootLevel();
         if (l == r) {
@@ -215,6 +307,18 @@ public class Sat {
         }
     }
 
+    /**
+     * Returns the decision level at which the given variable has been
+     * assigned.
+     *
+     * @param x the variable.
+     * @return the decision level of the variable, or -1 if it is not
+     * assigned.
+     */
+    public int level(final int x) {
+        return level[x];
+    }
+
     /**
      * Returns the current decision level.
      *
@@ -234,6 +338,7 @@ public class Sat {
     }
 
     public boolean assume(final Lit p) {
+        n_decisions++;
         trail_lim.push(trail.size());
         for (Theory th : theories) {
             th.push();
@@ -243,21 +348,63 @@ public class Sat {
 
     public void pop() {
         while (trail_lim.peekInt(0) < trail.size()) {
-            popOne();
+            unassign();
         }
         trail_lim.popInt();
         for (Theory th : theories) {
             th.pop();
         }
+        notifyBacktracked();
     }
 
     public boolean check() {
+        final CheckEvent event = new CheckEvent();
+        event.begin();
+        final int c_level = decisionLevel();
+        final long c_propagations = n_propagations;
+        final long c_conflicts = n_conflicts;
+        final boolean consistent = propagateAndLearn();
+        notifyAssigned();
+        if (event.shouldCommit()) {
+            event.level = c_level;
+            event.propagations = n_propagations - c_propagations;
+            event.conflicts = n_conflicts - c_conflicts;
+            event.consistent = consistent;
+            event.commit();
+        }
+        return consistent;
+    }
+
+    public boolean check(final Lit... ls) {
+        final CheckEvent event = new CheckEvent();
+        event.begin();
+        final int c_level = decisionLevel();
+        final long c_propagations = n_propagations;
+        final long c_conflicts = n_conflicts;
+        final boolean consistent = assumeAndPropagate(ls);
+        if (event.shouldCommit()) {
+            event.level = c_level;
+            event.propagations = n_propagations - c_propagations;
+            event.conflicts = n_conflicts - c_conflicts;
+            event.consistent = consistent;
+            event.commit();
+        }
+        return consistent;
+    }
+
+    private boolean propagateAndLearn() {
         final List<Lit> cnfl = new ArrayList<>();
         while (true) {
             if (!propagate(cnfl)) {
                 if (rootLevel()) {
+                    if (proof != null) {
+                        proof.add(); // the empty clause..
+                    }
                     return false;
                 }
+                final AnalyzeEvent event = new AnalyzeEvent();
+                event.begin();
+                final int c_level = decisionLevel();
                 List<Lit> no_good = new ArrayList<>();
                 // we analyze the conflict..
                 int bt_level = analyze(cnfl, no_good);
@@ -265,15 +412,27 @@ public class Sat {
                     pop();
                 }
                 // we record the no-good..
-                record(no_good.toArray(new Lit[no_good.size()]));
+                final Lit[] no_good_lits = no_good.toArray(new Lit[no_good.size()]);
+                if (proof != null) {
+                    proof.add(no_good_lits);
+                }
+                n_learned++;
+                n_learned_lits += no_good_lits.length;
+                learn(no_good_lits);
                 cnfl.clear();
+                if (event.shouldCommit()) {
+                    event.level = c_level;
+                    event.bt_level = bt_level;
+                    event.size = no_good_lits.length;
+                    event.commit();
+                }
             } else {
                 return true;
             }
         }
     }
 
-    public boolean check(final Lit... ls) {
+    private boolean assumeAndPropagate(final Lit... ls) {
         int c_level = decisionLevel();
         final List<Lit> cnfl = new ArrayList<>();
         for (Lit l : ls) {
@@ -314,19 +473,20 @@ public class Sat {
             }
             // select next literal to look at..
             do {
-                p = trail.peekFirst();
+                p = new Lit(variable(trail.topInt()), sign(trail.topInt()));
                 assert level[p.v] == decisionLevel(); // this variable must have been assigned at the current decision level..
                 if (reason[p.v] != null) // 'p' can be the asserting literal..
                 {
-                    assert reason[p.v].lits[0].equals(p); // a consequence of propagating the clause is the assignment of literal 'p'..
+                    assert index(reason[p.v].lits[0]) == trail.topInt(); // a consequence of propagating the clause is the assignment of literal 'p'..
                     assert value(p) == True; // 'p' has been propagated as true..
                     assert Stream.of(reason[p.v].lits).skip(1).allMatch(l -> value(l) == False); // all these literals must have been assigned as false for propagating 'p'..
                     p_reason = Stream.of(reason[p.v].lits).skip(1).collect(Collectors.toList());
                 }
-                popOne();
+                unassign();
             } while (!seen.contains(p.v));
             counter--;
         } while (counter > 0);
+        // the unassigned literals are notified by the pops of the backjump, once at the backjump level..
         // 'p' is now the first Unique Implication Point (UIP), possibly the asserting literal, that led to the conflict..
         assert value(p) == Undefined;
         assert no_good.stream().skip(1).allMatch(l -> value(l) == False); // all these literals must have been assigned as false for propagating 'p'..
@@ -334,7 +494,20 @@ public class Sat {
         return bt_level;
     }
 
+    /**
+     * Records the given theory lemma, whose first literal is propagated.
+     *
+     * @param lits the literals of the lemma.
+     */
     public void record(final Lit... lits) {
+        if (proof != null) {
+            proof.lemma(lits);
+        }
+        n_theory_propagations++;
+        learn(lits);
+    }
+
+    private void learn(final Lit... lits) {
         assert value(lits[0]) == Undefined;
         assert Stream.of(lits).noneMatch(l -> value(l) == True);
         assert Stream.of(lits).filter(l -> value(l) == Undefined).count() == 1;
@@ -358,6 +531,7 @@ public class Sat {
         while (!prop_q.isEmpty()) {
             // we propagate sat constraints..
             Lit p = prop_q.pollFirst();
+            n_propagations++;
             final List<Clause> tmp = watches[index(p)];
             watches[index(p)] = new ClauseList();
             for (int i = 0; i < tmp.size(); i++) {
@@ -370,6 +544,7 @@ public class Sat {
                     assert Stream.of(cl.lits).filter(l -> watches[index(l.not())].contains(cl)).count() == 2;
                     cnfl.addAll(Arrays.asList(cl.lits));
                     prop_q.clear();
+                    n_conflicts++;
                     return false;
                 }
                 assert Stream.of(cl.lits).filter(l -> watches[index(l.not())].contains(cl)).count() == 2;
@@ -381,7 +556,11 @@ public class Sat {
                 for (Theory th : ths) {
                     if (!th.propagate(p, cnfl)) {
                         assert !cnfl.isEmpty();
+                        if (proof != null) {
+                            proof.lemma(cnfl.toArray(new Lit[cnfl.size()]));
+                        }
                         prop_q.clear();
+                        n_conflicts++;
                         return false;
                     }
                 }
@@ -392,6 +571,10 @@ public class Sat {
         for (Theory th : theories) {
             if (!th.check(cnfl)) {
                 assert !cnfl.isEmpty();
+                if (proof != null) {
+                    proof.lemma(cnfl.toArray(new Lit[cnfl.size()]));
+                }
+                n_conflicts++;
                 return false;
             }
         }
@@ -409,7 +592,7 @@ public class Sat {
             assigns[p.v] = p.sign ? True : False;
             level[p.v] = decisionLevel();
             reason[p.v] = c;
-            trail.addFirst(p);
+            trail.add(index(p));
             prop_q.addLast(p);
             return true;
         default:
@@ -418,12 +601,125 @@ public class Sat {
     }
 
     public void popOne() {
-        int v = trail.pollFirst().v;
+        unassign();
+        notifyBacktracked();
+    }
+
+    private void unassign() {
+        int v = variable(trail.popInt());
         assigns[v] = Undefined;
         reason[v] = null;
         level[v] = -1;
     }
 
+    /**
+     * Adds a listener of the assignments of the propositional variables. The
+     * listener is immediately notified of the literals already assigned and
+     * propagated.
+     *
+     * @param l the listener to be added.
+     */
+    public void addListener(final AssignmentListener l) {
+        listeners.add(l);
+        if (n_notified > 0) {
+            l.assigned(trail.elements(), 0, n_notified);
+        }
+    }
+
+    public void removeListener(final AssignmentListener l) {
+        listeners.remove(l);
+    }
+
+    private void notifyAssigned() {
+        if (trail.size() > n_notified) {
+            for (AssignmentListener l : listeners) {
+                l.assigned(trail.elements(), n_notified, trail.size());
+            }
+            n_notified = trail.size();
+        }
+    }
+
+    /**
+     * Notifies the listeners of the already notified literals which are no
+     * more in the trail. Notice that the popped literals are still within the
+     * backing array of the trail.
+     */
+    private void notifyBacktracked() {
+        if (trail.size() < n_notified) {
+            for (AssignmentListener l : listeners) {
+                l.backtracked(decisionLevel(), trail.elements(), trail.size(), n_notified);
+            }
+            n_notified = trail.size();
+        }
+    }
+
+    /**
+     * Sets the log of the learned clauses and of the theory lemmas, used for
+     * certifying unsatisfiability results.
+     *
+     * @param proof the proof log or {@code null} for disabling proof logging.
+     */
+    public void setProof(final DRATProof proof) {
+        this.proof = proof;
+    }
+
+    /**
+     * Returns the number of literals assumed so far.
+     *
+     * @return the number of literals assumed so far.
+     */
+    public long decisions() {
+        return n_decisions;
+    }
+
+    /**
+     * Returns the number of literals propagated so far.
+     *
+     * @return the number of literals propagated so far.
+     */
+    public long propagations() {
+        return n_propagations;
+    }
+
+    /**
+     * Returns the number of conflicts, either propositional or raised by the
+     * theories, encountered so far.
+     *
+     * @return the number of conflicts encountered so far.
+     */
+    public long conflicts() {
+        return n_conflicts;
+    }
+
+    /**
+     * Returns the number of no-goods learned so far through conflict analysis.
+     *
+     * @return the number of no-goods learned so far.
+     */
+    public long learned() {
+        return n_learned;
+    }
+
+    /**
+     * Returns the overall number of literals within the no-goods learned so
+     * far, so that {@code learnedLits() / learned()} is their average size.
+     *
+     * @return the overall number of literals within the learned no-goods.
+     */
+    public long learnedLits() {
+        return n_learned_lits;
+    }
+
+    /**
+     * Returns the number of lemmas recorded so far by the theories for
+     * propagating literals.
+     *
+     * @return the number of theory propagations so far.
+     */
+    public long theoryPropagations() {
+        return n_theory_propagations;
+    }
+
     public void addTheory(final Theory th) {
         theories.add(th);
     }
@@ -447,25 +743,26 @@ public class Sat {
 
     private void ensureCapacity(final int minCapacity) {
         int capacity = assigns.length;
-        while (minCapacity > capacity) {
-            capacity = (capacity * 3) / 2 + 1;
-            if (minCapacity < capacity) {
-                LBool[] c_assigns = new LBool[capacity];
-                System.arraycopy(assigns, 0, c_assigns, 0, assigns.length);
-                assigns = c_assigns;
-
-                ClauseList[] c_watches = new ClauseList[capacity << 1];
-                System.arraycopy(watches, 0, c_watches, 0, watches.length);
-                watches = c_watches;
-
-                Clause[] c_reason = new Clause[capacity];
-                System.arraycopy(reason, 0, c_reason, 0, reason.length);
-                reason = c_reason;
-
-                int[] c_level = new int[capacity];
-                System.arraycopy(level, 0, c_level, 0, level.length);
-                level = c_level;
+        if (minCapacity > capacity) {
+            while (minCapacity > capacity) {
+                capacity = (capacity * 3) / 2 + 1;
             }
+
+            LBool[] c_assigns = new LBool[capacity];
+            System.arraycopy(assigns, 0, c_assigns, 0, assigns.length);
+            assigns = c_assigns;
+
+            ClauseList[] c_watches = new ClauseList[capacity << 1];
+            System.arraycopy(watches, 0, c_watches, 0, watches.length);
+            watches = c_watches;
+
+            Clause[] c_reason = new Clause[capacity];
+            System.arraycopy(reason, 0, c_reason, 0, reason.length);
+            reason = c_reason;
+
+            int[] c_level = new int[capacity];
+            System.arraycopy(level, 0, c_level, 0, level.length);
+            level = c_level;
         }
     }
 
@@ -489,6 +786,28 @@ public class Sat {
         return p.sign ? p.v << 1 : (p.v << 1) ^ 1;
     }
 
+    /**
+     * Returns the propositional variable of the given encoded literal, as
+     * notified to the {@link AssignmentListener}s.
+     *
+     * @param lit an encoded literal.
+     * @return the propositional variable of the literal.
+     */
+    public static int variable(final int lit) {
+        return lit >>> 1;
+    }
+
+    /**
+     * Returns the sign of the given encoded literal, as notified to the
+     * {@link AssignmentListener}s.
+     *
+     * @param lit an encoded literal.
+     * @return {@code true} if the literal is direct, {@code false} if negated.
+     */
+    public static boolean sign(final int lit) {
+        return (lit & 1) == 0;
+    }
+
     static class ClauseList extends ObjectArrayList<Clause> {
     }
 }
@@ -206,13 +206,13 @@ public class VarTheory implements Theory {
 
     private void ensureCapacity(final int minCapacity) {
         int capacity = domains.length;
-        while (minCapacity > capacity) {
-            capacity = (capacity * 3) / 2 + 1;
-            if (minCapacity < capacity) {
-                VarDomain[] c_domains = new VarDomain[capacity << 1];
-                System.arraycopy(domains, 0, c_domains, 0, domains.length);
-                domains = c_domains;
+        if (minCapacity >= capacity) {
+            while (minCapacity >= capacity) {
+                capacity = (capacity * 3) / 2 + 1;
             }
+            VarDomain[] c_domains = new VarDomain[capacity];
+            System.arraycopy(domains, 0, c_domains, 0, domains.length);
+            domains = c_domains;
         }
     }
 
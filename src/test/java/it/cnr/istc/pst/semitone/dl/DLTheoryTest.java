@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.dl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import it.cnr.istc.pst.semitone.lra.Lin;
+import it.cnr.istc.pst.semitone.lra.Rational;
+import it.cnr.istc.pst.semitone.sat.LBool;
+import it.cnr.istc.pst.semitone.sat.Lit;
+import it.cnr.istc.pst.semitone.sat.Sat;
+
+/**
+ *
+ * @author Riccardo De Benedictis
+ */
+public class DLTheoryTest {
+
+    @Test
+    public void testDLTheory() {
+        Sat sat = new Sat();
+        DLTheory dl = new DLTheory(sat);
+
+        int x = dl.newVar();
+        int y = dl.newVar();
+        int z = dl.newVar();
+
+        // y >= x + 5
+        boolean nc = sat.newClause(new Lit(dl.newGEq(new Lin(y), new Lin(x).plus(new Lin(new Rational(5)))))) && sat.check();
+        assertTrue(nc);
+        // z >= y + 3
+        nc = sat.newClause(new Lit(dl.newGEq(new Lin(z), new Lin(y).plus(new Lin(new Rational(3)))))) && sat.check();
+        assertTrue(nc);
+        // x >= 0
+        nc = sat.newClause(new Lit(dl.newGEq(new Lin(x), new Lin(new Rational(0))))) && sat.check();
+        assertTrue(nc);
+        assertTrue(dl.value(x).geq(0));
+        assertTrue(dl.value(y).minus(dl.value(x)).geq(5));
+        assertTrue(dl.value(z).minus(dl.value(y)).geq(3));
+
+        // z <= 7, which closes a negative cycle..
+        nc = sat.newClause(new Lit(dl.newLEq(new Lin(z), new Lin(new Rational(7))))) && sat.check();
+        assertFalse(nc);
+    }
+
+    @Test
+    public void testStrictInequalities() {
+        Sat sat = new Sat();
+        DLTheory dl = new DLTheory(sat);
+
+        int x = dl.newVar();
+        int y = dl.newVar();
+        int y_leq_x = dl.newLEq(new Lin(y), new Lin(x));
+
+        // x < y
+        boolean nc = sat.newClause(new Lit(dl.newLt(new Lin(x), new Lin(y)))) && sat.check();
+        assertTrue(nc);
+        assertTrue(dl.value(x).lt(dl.value(y)));
+
+        // y <= x is inconsistent with x < y..
+        assertEquals(LBool.False, sat.value(y_leq_x));
+    }
+
+    @Test
+    public void testBacktracking() {
+        Sat sat = new Sat();
+        DLTheory dl = new DLTheory(sat);
+
+        int x = dl.newVar();
+        int y = dl.newVar();
+        int z = dl.newVar();
+        int y_geq_x_10 = dl.newGEq(new Lin(y), new Lin(x).plus(new Lin(new Rational(10))));
+        int z_geq_y_10 = dl.newGEq(new Lin(z), new Lin(y).plus(new Lin(new Rational(10))));
+        int z_leq_x_15 = dl.newLEq(new Lin(z), new Lin(x).plus(new Lin(new Rational(15))));
+
+        // z <= x + 15
+        boolean nc = sat.newClause(new Lit(z_leq_x_15)) && sat.check();
+        assertTrue(nc);
+
+        // y >= x + 10
+        boolean asm = sat.assume(new Lit(y_geq_x_10)) && sat.check();
+        assertTrue(asm);
+        assertEquals(1, sat.decisionLevel());
+
+        // z >= y + 10, which, with the other constraints, closes a negative cycle..
+        asm = sat.assume(new Lit(z_geq_y_10)) && sat.check();
+        assertTrue(asm);
+        // the learned clause forces the negation of the last decision..
+        assertEquals(1, sat.decisionLevel());
+        assertEquals(LBool.False, sat.value(z_geq_y_10));
+        assertTrue(dl.value(z).minus(dl.value(y)).lt(10));
+
+        sat.pop();
+        assertTrue(sat.rootLevel());
+        // without y >= x + 10, z >= y + 10 is consistent..
+        asm = sat.assume(new Lit(z_geq_y_10)) && sat.check();
+        assertTrue(asm);
+        assertTrue(dl.value(z).minus(dl.value(y)).geq(10));
+        assertTrue(dl.value(z).minus(dl.value(x)).leq(15));
+    }
+
+    @Test
+    public void testPropagation() {
+        Sat sat = new Sat();
+        DLTheory dl = new DLTheory(sat);
+
+        int x = dl.newVar();
+        int y = dl.newVar();
+        int x_leq_y_5 = dl.newLEq(new Lin(x), new Lin(y).plus(new Lin(new Rational(5))));
+        int x_leq_y_10 = dl.newLEq(new Lin(x), new Lin(y).plus(new Lin(new Rational(10))));
+        int y_leq_x_m8 = dl.newLEq(new Lin(y), new Lin(x).minus(new Lin(new Rational(8))));
+        int y_leq_x_m3 = dl.newLEq(new Lin(y), new Lin(x).minus(new Lin(new Rational(3))));
+
+        // x <= y + 5
+        boolean asm = sat.assume(new Lit(x_leq_y_5)) && sat.check();
+        assertTrue(asm);
+        // x <= y + 10 is implied..
+        assertEquals(LBool.True, sat.value(x_leq_y_10));
+        // y <= x - 8 would close a negative cycle..
+        assertEquals(LBool.False, sat.value(y_leq_x_m8));
+        // y <= x - 3 is still undefined..
+        assertEquals(LBool.Undefined, sat.value(y_leq_x_m3));
+
+        sat.pop();
+        assertEquals(LBool.Undefined, sat.value(x_leq_y_10));
+        assertEquals(LBool.Undefined, sat.value(y_leq_x_m8));
+    }
+
+    @Test
+    public void testNormalization() {
+        Sat sat = new Sat();
+        DLTheory dl = new DLTheory(sat);
+
+        int x = dl.newVar();
+        int y = dl.newVar();
+
+        // x - y <= 2, 2x - 2y <= 4 and y - x >= -2 are the same constraint..
+        int c0 = dl.newLEq(new Lin(x).minus(new Lin(y)), new Lin(new Rational(2)));
+        int c1 = dl.newLEq(new Lin(x, new Rational(2)).minus(new Lin(y, new Rational(2))), new Lin(new Rational(4)));
+        int c2 = dl.newGEq(new Lin(y).minus(new Lin(x)), new Lin(new Rational(-2)));
+        assertEquals(c0, c1);
+        assertEquals(c0, c2);
+
+        // -3x < -6 is x > 2, i.e. 0 - x < -2..
+        int c3 = dl.newLt(new Lin(x, new Rational(-3)), new Lin(new Rational(-6)));
+        assertEquals(c3, dl.newGt(new Lin(x), new Lin(new Rational(2))));
+        assertTrue(c0 != c3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonDifferenceConstraint() {
+        Sat sat = new Sat();
+        DLTheory dl = new DLTheory(sat);
+
+        int x = dl.newVar();
+        int y = dl.newVar();
+
+        dl.newLEq(new Lin(x).plus(new Lin(y)), new Lin(new Rational(10)));
+    }
+}
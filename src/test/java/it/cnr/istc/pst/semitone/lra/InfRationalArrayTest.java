@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.lra;
+
+import static it.cnr.istc.pst.semitone.lra.Rational.NEGATIVE_INFINITY;
+import static it.cnr.istc.pst.semitone.lra.Rational.POSITIVE_INFINITY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Riccardo De Benedictis
+ */
+public class InfRationalArrayTest {
+
+    @Test
+    public void testInfRationalArray() {
+        InfRationalArray vals = new InfRationalArray(1);
+        vals.ensureCapacity(3);
+        vals.set(0, new InfRational(new Rational(1, 2), -1));
+        vals.set(1, new InfRational(new Rational(Long.MAX_VALUE)));
+        vals.set(2, new InfRational());
+
+        InfRational v = new InfRational();
+        vals.get(0, v);
+        assertEquals(new InfRational(new Rational(1, 2), -1), v);
+        assertTrue(vals.lt(0, new InfRational(new Rational(1, 2))));
+        assertTrue(vals.gt(0, new InfRational(NEGATIVE_INFINITY)));
+        assertTrue(vals.lt(0, new InfRational(POSITIVE_INFINITY)));
+
+        // the value does not fit into longs anymore..
+        vals.addMul(1, new InfRational(new Rational(Long.MAX_VALUE), 1), new Rational(2));
+        vals.get(1, v);
+        assertTrue(v.rat.isBig());
+        assertEquals(new Rational(Long.MAX_VALUE).times(new Rational(3)), v.rat);
+        assertEquals(new Rational(2), v.inf);
+        assertTrue(vals.gt(1, new InfRational(new Rational(Long.MAX_VALUE))));
+
+        // ..and back again..
+        vals.addMul(1, new InfRational(new Rational(Long.MAX_VALUE), 1), new Rational(-2));
+        vals.get(1, v);
+        assertEquals(new InfRational(new Rational(Long.MAX_VALUE)), v);
+        assertEquals(0, vals.compare(1, new InfRational(new Rational(Long.MAX_VALUE))));
+
+        vals.add(2, new InfRational(new Rational(), 1));
+        assertTrue(vals.gt(2, new InfRational()));
+    }
+}
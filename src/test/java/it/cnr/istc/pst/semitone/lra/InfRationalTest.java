@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.lra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Riccardo De Benedictis
+ */
+public class InfRationalTest {
+
+    @Test
+    public void testComparisons() {
+        InfRational zero = new InfRational();
+        InfRational eps = new InfRational(new Rational(), 1);
+        InfRational one_minus_eps = new InfRational(new Rational(1), -1);
+
+        assertTrue(zero.lt(eps));
+        assertTrue(zero.leq(eps));
+        assertFalse(zero.geq(eps));
+        assertFalse(zero.gt(eps));
+        assertTrue(zero.neq(eps));
+        assertFalse(eps.leq(zero));
+        assertTrue(eps.geq(zero));
+
+        assertTrue(eps.lt(one_minus_eps));
+        assertTrue(one_minus_eps.lt(new Rational(1)));
+        assertTrue(one_minus_eps.leq(new Rational(1)));
+        assertFalse(one_minus_eps.geq(new Rational(1)));
+        assertTrue(one_minus_eps.neq(new Rational(1)));
+        assertTrue(eps.neq(new Rational()));
+        assertFalse(zero.neq(new Rational()));
+        assertFalse(eps.leq(0));
+        assertTrue(eps.geq(0));
+    }
+
+    @Test
+    public void testArithmetic() {
+        // 1 - 2ε..
+        InfRational v = new InfRational(new Rational(1), -2);
+        InfRational c_v = v.times(new Rational(3, 2));
+        assertEquals(new InfRational(new Rational(3, 2), -3), c_v);
+        assertEquals(new InfRational(new Rational(1), -2), v); // the operand is not modified..
+        c_v.div(new Rational(3, 2));
+        assertEquals(v, c_v);
+
+        InfRational acc = new InfRational(2);
+        acc.addMul(v, new Rational(-1, 2));
+        assertEquals(new InfRational(new Rational(3, 2), 1), acc);
+        acc.subMul(v, new Rational(-1, 2));
+        assertEquals(new InfRational(2), acc);
+        acc.set(v);
+        acc.negate();
+        assertEquals(v.minus(), acc);
+        assertEquals(new InfRational(new Rational(-1), 2), acc);
+    }
+}
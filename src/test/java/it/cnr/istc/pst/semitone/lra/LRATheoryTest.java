@@ -17,11 +17,20 @@
 package it.cnr.istc.pst.semitone.lra;
 
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import it.cnr.istc.pst.semitone.sat.DRATProof;
+import it.cnr.istc.pst.semitone.sat.LBool;
 import it.cnr.istc.pst.semitone.sat.Lit;
 import it.cnr.istc.pst.semitone.sat.Sat;
 
@@ -113,4 +122,392 @@ public class LRATheoryTest {
         y_val = lra.value(y);
         assertTrue(y_val.eq(1));
     }
+
+    @Test
+    public void testPivotRules() {
+        for (LRATheory.RowRule row_rule : LRATheory.RowRule.values()) {
+            for (LRATheory.ColumnRule column_rule : LRATheory.ColumnRule.values()) {
+                for (int bland_threshold : new int[] { -1, 0, 1, Integer.MAX_VALUE }) {
+                    Sat sat = new Sat();
+                    LRATheory lra = new LRATheory(sat);
+                    lra.setPivotRules(row_rule, column_rule, bland_threshold);
+
+                    int x = lra.newVar();
+                    int y = lra.newVar();
+
+                    // x + y >= 2
+                    boolean nc = sat.newClause(new Lit(lra.newGEq(new Lin(x).plus(new Lin(y)), new Lin(new Rational(2)))));
+                    assertTrue(nc);
+                    // x - y <= 0
+                    nc = sat.newClause(new Lit(lra.newLEq(new Lin(x).minus(new Lin(y)), new Lin(new Rational(0)))));
+                    assertTrue(nc);
+                    // y <= 1
+                    nc = sat.newClause(new Lit(lra.newLEq(new Lin(y), new Lin(new Rational(1))))) && sat.check();
+                    assertTrue(nc);
+                    assertTrue(lra.value(x).eq(1));
+                    assertTrue(lra.value(y).eq(1));
+
+                    // x <= 1/2
+                    int x_leq = lra.newLEq(new Lin(x), new Lin(new Rational(1, 2)));
+                    boolean asm = sat.assume(new Lit(x_leq)) && sat.check();
+                    assertTrue(asm);
+                    assertTrue(sat.rootLevel());
+                    assertEquals(LBool.False, sat.value(x_leq));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnatePropagation() {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+
+        int x = lra.newVar();
+
+        // the assertions are created out of order, so as to exercise the index..
+        int x_leq_3 = lra.newLEq(new Lin(x), new Lin(new Rational(3)));
+        int x_geq_6 = lra.newGEq(new Lin(x), new Lin(new Rational(6)));
+        int x_leq_1 = lra.newLEq(new Lin(x), new Lin(new Rational(1)));
+        int x_geq_2 = lra.newGEq(new Lin(x), new Lin(new Rational(2)));
+        int x_leq_7 = lra.newLEq(new Lin(x), new Lin(new Rational(7)));
+        int x_geq_4 = lra.newGEq(new Lin(x), new Lin(new Rational(4)));
+        int x_geq_5 = lra.newGEq(new Lin(x), new Lin(new Rational(5)));
+        int x_leq_5 = lra.newLEq(new Lin(x), new Lin(new Rational(5)));
+
+        // x >= 5
+        boolean asm = sat.assume(new Lit(x_geq_5)) && sat.check();
+        assertTrue(asm);
+        assertEquals(LBool.False, sat.value(x_leq_1));
+        assertEquals(LBool.False, sat.value(x_leq_3));
+        assertEquals(LBool.Undefined, sat.value(x_leq_7));
+        assertEquals(LBool.True, sat.value(x_geq_2));
+        assertEquals(LBool.True, sat.value(x_geq_4));
+        assertEquals(LBool.Undefined, sat.value(x_geq_6));
+
+        // x <= 5
+        asm = sat.assume(new Lit(x_leq_5)) && sat.check();
+        assertTrue(asm);
+        assertEquals(LBool.True, sat.value(x_leq_7));
+        assertEquals(LBool.False, sat.value(x_geq_6));
+        assertTrue(lra.value(x).eq(5));
+
+        sat.pop();
+        sat.pop();
+        assertEquals(LBool.Undefined, sat.value(x_leq_1));
+        assertEquals(LBool.Undefined, sat.value(x_geq_4));
+
+        // x <= 3
+        asm = sat.assume(new Lit(x_leq_3)) && sat.check();
+        assertTrue(asm);
+        assertEquals(LBool.True, sat.value(x_leq_7));
+        assertEquals(LBool.Undefined, sat.value(x_leq_1));
+        assertEquals(LBool.False, sat.value(x_geq_4));
+        assertEquals(LBool.False, sat.value(x_geq_6));
+        assertEquals(LBool.Undefined, sat.value(x_geq_2));
+    }
+
+    @Test
+    public void testBacktracking() {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+
+        int x = lra.newVar();
+        int y = lra.newVar();
+        int s = lra.newVar(new Lin(x).plus(new Lin(y)));
+        // the assertions on 'x' and on 'y' constrain the following slack variables..
+        int s_x = lra.newVar(new Lin(x));
+        int s_y = lra.newVar(new Lin(y));
+
+        int x_geq_1 = lra.newGEq(new Lin(x), new Lin(new Rational(1)));
+        int x_geq_2 = lra.newGEq(new Lin(x), new Lin(new Rational(2)));
+        int y_geq_3 = lra.newGEq(new Lin(y), new Lin(new Rational(3)));
+        int x_leq_4 = lra.newLEq(new Lin(x), new Lin(new Rational(4)));
+
+        // x + y >= 0
+        boolean nc = sat.newClause(new Lit(lra.newGEq(new Lin(s), new Lin(new Rational(0))))) && sat.check();
+        assertTrue(nc);
+        InfRational s_lb = lra.lb(s);
+
+        boolean asm = sat.assume(new Lit(x_geq_1)) && sat.check();
+        assertTrue(asm);
+        asm = sat.assume(new Lit(x_geq_2)) && sat.check();
+        assertTrue(asm);
+        asm = sat.assume(new Lit(y_geq_3)) && sat.check();
+        assertTrue(asm);
+        asm = sat.assume(new Lit(x_leq_4)) && sat.check();
+        assertTrue(asm);
+        assertTrue(lra.value(s).geq(5));
+
+        assertTrue(lra.lb(s_x).eq(2));
+        assertTrue(lra.ub(s_x).eq(4));
+
+        sat.pop();
+        assertTrue(lra.ub(s_x).rat.isPositiveInfinite());
+        sat.pop();
+        assertTrue(lra.lb(s_y).rat.isNegativeInfinite());
+        sat.pop();
+        assertTrue(lra.lb(s_x).eq(1));
+        sat.pop();
+        assertTrue(lra.lb(s_x).rat.isNegativeInfinite());
+        assertTrue(lra.lb(s).eq(s_lb));
+    }
+
+    @Test
+    public void testAssignmentCaching() {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+        lra.setAssignmentCaching(true);
+
+        int x = lra.newVar();
+        int y = lra.newVar();
+        int s_x = lra.newVar(new Lin(x));
+        int s_y = lra.newVar(new Lin(y));
+        int x_geq_5 = lra.newGEq(new Lin(s_x), new Lin(new Rational(5)));
+        int x_geq_20 = lra.newGEq(new Lin(s_x), new Lin(new Rational(20)));
+
+        // x + y <= 10
+        boolean nc = sat.newClause(new Lit(lra.newLEq(new Lin(x).plus(new Lin(y)), new Lin(new Rational(10)))));
+        assertTrue(nc);
+        // y >= 0
+        nc = sat.newClause(new Lit(lra.newGEq(new Lin(s_y), new Lin(new Rational(0))))) && sat.check();
+        assertTrue(nc);
+        assertTrue(lra.value(x).eq(0));
+
+        // x >= 20, which moves the value of 'x' before being found inconsistent..
+        boolean asm = sat.assume(new Lit(x_geq_20)) && sat.check();
+        assertTrue(asm);
+        assertTrue(sat.rootLevel());
+        assertEquals(LBool.False, sat.value(x_geq_20));
+        assertEquals(1, lra.restores());
+        assertTrue(lra.value(x).eq(0));
+
+        // x >= 5
+        asm = sat.assume(new Lit(x_geq_5)) && sat.check();
+        assertTrue(asm);
+        assertTrue(lra.value(x).geq(5));
+        sat.pop();
+        // the current assignment is still feasible, hence it is kept..
+        assertEquals(1, lra.restores());
+        assertTrue(lra.value(x).geq(5));
+    }
+
+    @Test
+    public void testNormalization() {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+
+        int x = lra.newVar();
+        int y = lra.newVar();
+
+        // x + y <= 4, 2x + 2y <= 8 and -x - y >= -4 are the same constraint..
+        int c0 = lra.newLEq(new Lin(x).plus(new Lin(y)), new Lin(new Rational(4)));
+        int c1 = lra.newLEq(new Lin(x, new Rational(2)).plus(new Lin(y, new Rational(2))), new Lin(new Rational(8)));
+        int c2 = lra.newGEq(new Lin(x, new Rational(-1)).plus(new Lin(y, new Rational(-1))), new Lin(new Rational(-4)));
+        assertEquals(c0, c1);
+        assertEquals(c0, c2);
+
+        // x + y < 4 and -2x - 2y > -8 are the same constraint..
+        int c3 = lra.newLt(new Lin(x).plus(new Lin(y)), new Lin(new Rational(4)));
+        int c4 = lra.newGt(new Lin(x, new Rational(-2)).plus(new Lin(y, new Rational(-2))), new Lin(new Rational(-8)));
+        assertEquals(c3, c4);
+        assertTrue(c0 != c3);
+
+        // all of them share the same slack variable, i.e. the first one after 'x' and 'y'..
+        assertEquals(2, lra.newVar(new Lin(x).plus(new Lin(y))));
+    }
+
+    @Test
+    public void testBoundAssertions() {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+
+        int x = lra.newVar();
+
+        // 2x <= 10 and -x >= -5 are bounds on 'x'..
+        int x_leq_5 = lra.newLEq(new Lin(x, new Rational(2)), new Lin(new Rational(10)));
+        assertEquals(x_leq_5, lra.newGEq(new Lin(x, new Rational(-1)), new Lin(new Rational(-5))));
+        // -3x <= -3 is x >= 1..
+        int x_geq_1 = lra.newLEq(new Lin(x, new Rational(-3)), new Lin(new Rational(-3)));
+        // no slack variable has been created..
+        assertEquals(x, lra.newVar(new Lin(x)));
+        assertEquals(1, lra.newVar());
+
+        boolean nc = sat.newClause(new Lit(x_leq_5)) && sat.newClause(new Lit(x_geq_1)) && sat.check();
+        assertTrue(nc);
+        assertTrue(lra.ub(x).eq(5));
+        assertTrue(lra.lb(x).eq(1));
+    }
+
+    @Test
+    public void testConflictExplanation() {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+
+        int x = lra.newVar();
+        int y = lra.newVar();
+        int s1 = lra.newVar(new Lin(x).plus(new Lin(y)));
+        int s2 = lra.newVar(new Lin(x).minus(new Lin(y)));
+        int x_geq_2_5 = lra.newGEq(new Lin(x), new Lin(new Rational(5, 2)));
+        int x_geq_3 = lra.newGEq(new Lin(x), new Lin(new Rational(3)));
+        int s1_leq_2 = lra.newLEq(new Lin(s1), new Lin(new Rational(2)));
+        int s2_leq_2 = lra.newLEq(new Lin(s2), new Lin(new Rational(2)));
+        int both = sat.newConj(new Lit(s1_leq_2), new Lit(s2_leq_2));
+
+        // x >= 2.5
+        boolean asm = sat.assume(new Lit(x_geq_2_5)) && sat.check();
+        assertTrue(asm);
+        // x >= 3
+        asm = sat.assume(new Lit(x_geq_3)) && sat.check();
+        assertTrue(asm);
+        assertEquals(2, sat.decisionLevel());
+
+        // x + y <= 2 and x - y <= 2, which are inconsistent with x >= 2.5 as well..
+        asm = sat.assume(new Lit(both)) && sat.check();
+        assertTrue(asm);
+        // the explanation uses x >= 2.5 rather than x >= 3, hence we backjump to the first level..
+        assertEquals(1, sat.decisionLevel());
+        assertEquals(LBool.False, sat.value(both));
+        assertEquals(LBool.Undefined, sat.value(x_geq_3));
+    }
+
+    @Test
+    public void testNegatedConflictExplanation() {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+
+        int x = lra.newVar();
+        int y = lra.newVar();
+        int s1 = lra.newVar(new Lin(x).plus(new Lin(y)));
+        int s2 = lra.newVar(new Lin(x).minus(new Lin(y)));
+        int x_leq_2_5 = lra.newLEq(new Lin(x), new Lin(new Rational(5, 2)));
+        int x_geq_3 = lra.newGEq(new Lin(x), new Lin(new Rational(3)));
+        int s1_leq_2 = lra.newLEq(new Lin(s1), new Lin(new Rational(2)));
+        int s2_leq_2 = lra.newLEq(new Lin(s2), new Lin(new Rational(2)));
+        int both = sat.newConj(new Lit(s1_leq_2), new Lit(s2_leq_2));
+
+        // !(x <= 2.5)
+        boolean asm = sat.assume(new Lit(x_leq_2_5, false)) && sat.check();
+        assertTrue(asm);
+        // x >= 3
+        asm = sat.assume(new Lit(x_geq_3)) && sat.check();
+        assertTrue(asm);
+        assertEquals(2, sat.decisionLevel());
+
+        // x + y <= 2 and x - y <= 2, which are inconsistent with !(x <= 2.5) as well..
+        asm = sat.assume(new Lit(both)) && sat.check();
+        assertTrue(asm);
+        // the explanation uses the negated assertion rather than x >= 3, hence we backjump to the first level..
+        assertEquals(1, sat.decisionLevel());
+        assertEquals(LBool.False, sat.value(both));
+        assertEquals(LBool.Undefined, sat.value(x_geq_3));
+    }
+
+    @Test
+    public void testInfeasibleVariables() {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+        lra.setPivotRules(LRATheory.RowRule.MostViolated, LRATheory.ColumnRule.Bland, Integer.MAX_VALUE);
+
+        int x = lra.newVar();
+        int y = lra.newVar();
+        int s1 = lra.newVar(new Lin(x).plus(new Lin(y)));
+        int s2 = lra.newVar(new Lin(x).minus(new Lin(y)));
+        int s1_geq_2 = lra.newGEq(new Lin(s1), new Lin(new Rational(2)));
+        int s2_geq_10 = lra.newGEq(new Lin(s2), new Lin(new Rational(10)));
+        int both = sat.newConj(new Lit(s1_geq_2), new Lit(s2_geq_10));
+        int x_leq_8 = lra.newLEq(new Lin(x), new Lin(new Rational(8)));
+        int y_geq_0 = lra.newGEq(new Lin(y), new Lin(new Rational(0)));
+
+        // the bounds of both the basic variables are tightened past their values..
+        boolean asm = sat.assume(new Lit(both)) && sat.check();
+        assertTrue(asm);
+        // the most violated variable leaves the basis first, which also repairs the other one..
+        assertEquals(1, lra.rowsScanned());
+        assertEquals(1, lra.pivots());
+        assertTrue(lra.value(s1).geq(2));
+        assertTrue(lra.value(s2).geq(10));
+
+        // x <= 8, which makes 'x' leave the basis before the conflict is found..
+        asm = sat.assume(new Lit(x_leq_8)) && sat.check();
+        assertTrue(asm);
+        asm = sat.assume(new Lit(y_geq_0)) && sat.check();
+        assertTrue(asm);
+        assertEquals(LBool.False, sat.value(y_geq_0));
+
+        // no infeasible variable is left behind by the conflict..
+        long rows_scanned = lra.rowsScanned();
+        asm = sat.check();
+        assertTrue(asm);
+        assertEquals(rows_scanned, lra.rowsScanned());
+        assertTrue(lra.value(s2).geq(10));
+        assertTrue(lra.value(x).leq(8));
+    }
+
+    @Test
+    public void testProofLemmas() throws IOException {
+        ByteArrayOutputStream proof_out = new ByteArrayOutputStream();
+        ByteArrayOutputStream lemmas_out = new ByteArrayOutputStream();
+        Sat sat = new Sat();
+        DRATProof proof = new DRATProof(Channels.newChannel(proof_out), Channels.newChannel(lemmas_out), 16);
+        sat.setProof(proof);
+        LRATheory lra = new LRATheory(sat);
+
+        int x = lra.newVar();
+        int x_leq_5 = lra.newLEq(new Lin(x), new Lin(new Rational(5)));
+        int x_leq_10 = lra.newLEq(new Lin(x), new Lin(new Rational(10)));
+        int x_leq_7 = lra.newLEq(new Lin(x), new Lin(new Rational(7)));
+        proof.close();
+
+        // the binary clauses linking the assertions are not part of the input formula, hence they are logged as lemmas..
+        String lemmas = new String(lemmas_out.toByteArray());
+        assertTrue(lemmas.contains("-" + (x_leq_5 - 1) + " " + (x_leq_10 - 1) + " 0\n"));
+        assertTrue(lemmas.contains("-" + (x_leq_5 - 1) + " " + (x_leq_7 - 1) + " 0\n"));
+        assertTrue(lemmas.contains("-" + (x_leq_7 - 1) + " " + (x_leq_10 - 1) + " 0\n"));
+    }
+
+    @Test
+    public void testOptimization() {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+
+        int x = lra.newVar();
+        int y = lra.newVar();
+        int z = lra.newVar();
+
+        // x + y <= 10
+        int c0 = lra.newLEq(new Lin(x).plus(new Lin(y)), new Lin(new Rational(10)));
+        // x >= 2
+        int c1 = lra.newGEq(new Lin(x), new Lin(new Rational(2)));
+        // y >= 1
+        int c2 = lra.newGEq(new Lin(y), new Lin(new Rational(1)));
+        boolean nc = sat.newClause(new Lit(c0)) && sat.newClause(new Lit(c1)) && sat.newClause(new Lit(c2)) && sat.check();
+        assertTrue(nc);
+
+        List<Lit> expl = new ArrayList<>();
+        assertTrue(lra.maximize(new Lin(x), expl).eq(9));
+        assertEquals(2, expl.size());
+        assertTrue(expl.stream().anyMatch(p -> p.v == c0 && p.sign));
+        assertTrue(expl.stream().anyMatch(p -> p.v == c2 && p.sign));
+        assertTrue(lra.value(x).eq(9));
+
+        expl.clear();
+        assertTrue(lra.minimize(new Lin(x).plus(new Lin(y)), expl).eq(3));
+        assertEquals(2, expl.size());
+        assertTrue(expl.stream().anyMatch(p -> p.v == c1 && p.sign));
+        assertTrue(expl.stream().anyMatch(p -> p.v == c2 && p.sign));
+
+        expl.clear();
+        // x - 2 * y
+        assertTrue(lra.minimize(new Lin(x).minus(new Lin(y).times(new Rational(2))), expl).eq(-14));
+        assertTrue(lra.value(x).eq(2));
+        assertTrue(lra.value(y).eq(8));
+
+        expl.clear();
+        assertTrue(lra.minimize(new Lin(x).plus(new Lin(z)), expl).rat.isNegativeInfinite());
+        assertTrue(expl.isEmpty());
+
+        // the optimal assignments are feasible..
+        assertTrue(sat.check());
+    }
 }
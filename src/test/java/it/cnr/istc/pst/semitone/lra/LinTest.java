@@ -16,6 +16,12 @@
  */
 package it.cnr.istc.pst.semitone.lra;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
 
 /**
@@ -35,5 +41,50 @@ public class LinTest {
         l1.add(2, new Rational(2));
 
         Lin l2 = l0.plus(l1);
+        assertEquals("x0 + 3*x1 + 2*x2", l2.toString());
+        assertEquals("x0 + 2*x1", l0.toString()); // the operands are not modified..
+
+        Lin l3 = l2.minus(l0);
+        assertEquals("x1 + 2*x2", l3.toString());
+        assertFalse(l3.contains(0));
+        assertNull(l3.get(0));
+
+        l3.addMul(l1, new Rational(-2));
+        assertEquals("-x1 - 2*x2", l3.toString());
+        l3.add(3, new Rational(1, 2));
+        l3.add(1, new Rational(1));
+        assertEquals("-2*x2 + 1/2*x3", l3.toString());
+        assertEquals(new Rational(1, 2), l3.remove(3));
+        assertEquals(1, l3.size());
+        assertEquals(2, l3.var(0));
+        assertEquals(new Rational(-2), l3.coeff(0));
+    }
+
+    @Test
+    public void testBuilder() {
+        Lin.Builder builder = new Lin.Builder();
+        Lin l0 = builder.add(5, 2).add(1, 1).add(5, -2).add(3, 4).add(1, 2).add(7).build();
+        assertEquals("3*x1 + 4*x3 + 7", l0.toString());
+
+        // the builder is reset..
+        Lin l1 = builder.add(2, 1).add(2, -1).build();
+        assertTrue(l1.isEmpty());
+        assertEquals("0", l1.toString());
+    }
+
+    @Test
+    public void testEquality() {
+        Lin l0 = new Lin(0).plus(new Lin(2, new Rational(1, 2))).plus(new Lin(new Rational(3)));
+        Lin l1 = new Lin.Builder().add(2, new Rational(1, 2)).add(0, 1).add(3).build();
+        assertEquals(l0, l1);
+        assertEquals(l0.hashCode(), l1.hashCode());
+
+        l1.add(new Rational(1));
+        assertNotEquals(l0, l1);
+        l1.sub(new Rational(1));
+        l1.add(1, new Rational(1));
+        assertNotEquals(l0, l1);
+        l1.remove(1);
+        assertEquals(l0, l1);
     }
 }
@@ -19,8 +19,10 @@ package it.cnr.istc.pst.semitone.lra;
 import static it.cnr.istc.pst.semitone.lra.Rational.NEGATIVE_INFINITY;
 import static it.cnr.istc.pst.semitone.lra.Rational.POSITIVE_INFINITY;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.math.BigInteger;
 import org.junit.Test;
 
 /**
@@ -67,4 +69,83 @@ public class RationalTest {
         assertTrue(POSITIVE_INFINITY.geq(NEGATIVE_INFINITY));
         assertTrue(POSITIVE_INFINITY.gt(NEGATIVE_INFINITY));
     }
+
+    @Test
+    public void testOverflow() {
+        final long big = Long.MAX_VALUE / 2 + 1;
+        Rational r0 = new Rational(big);
+        r0.add(big);
+        assertTrue(r0.isBig());
+        assertTrue(r0.isPositive());
+        assertEquals(BigInteger.valueOf(big).shiftLeft(1), r0.numerator());
+        assertTrue(r0.gt(Long.MAX_VALUE));
+        assertTrue(r0.lt(POSITIVE_INFINITY));
+        r0.sub(big);
+        assertFalse(r0.isBig());
+        assertEquals(big, r0.num);
+        assertEquals(1, r0.den);
+
+        Rational r1 = new Rational(1, big);
+        r1.mult(new Rational(1, 3));
+        assertTrue(r1.isBig());
+        assertTrue(r1.isPositive());
+        assertTrue(r1.lt(new Rational(1, big)));
+        r1.mult(3);
+        assertFalse(r1.isBig());
+        assertEquals(new Rational(1, big), r1);
+
+        Rational r2 = new Rational(Long.MAX_VALUE).times(new Rational(Long.MAX_VALUE));
+        assertTrue(r2.isBig());
+        assertEquals(r2, r2.plus(new Rational(1, big)).minus(new Rational(1, big)));
+        assertEquals(new Rational(Long.MAX_VALUE), r2.divide(Long.MAX_VALUE));
+        assertTrue(r2.minus().isNegative());
+        assertTrue(r2.minus().gt(NEGATIVE_INFINITY));
+        assertEquals(r2.doubleValue(), (double) Long.MAX_VALUE * Long.MAX_VALUE, 1e24);
+    }
+
+    @Test
+    public void testCompare() {
+        // cross products overflow..
+        Rational r0 = new Rational(Long.MAX_VALUE - 1, Long.MAX_VALUE);
+        Rational r1 = new Rational(Long.MAX_VALUE - 2, Long.MAX_VALUE - 1);
+        assertTrue(r1.lt(r0));
+        assertTrue(r0.gt(r1));
+        assertTrue(r0.lt(1));
+        assertTrue(new Rational(-Long.MAX_VALUE, 3).lt(new Rational(-Long.MAX_VALUE, 5)));
+        assertTrue(new Rational(Long.MIN_VALUE).lt(new Rational(Long.MIN_VALUE + 1)));
+        assertEquals(0, new Rational(Long.MAX_VALUE, 7).compareTo(new Rational(Long.MAX_VALUE, 7)));
+
+        // operations do not alias their operands..
+        Rational r2 = new Rational(0);
+        Rational r3 = r2.plus(r0);
+        r3.add(1);
+        assertTrue(r0.lt(1));
+        assertTrue(POSITIVE_INFINITY.times(new Rational(2)).isPositiveInfinite());
+        assertEquals(1, POSITIVE_INFINITY.num);
+    }
+
+    @Test
+    public void testAddMul() {
+        Rational acc = new Rational(1, 2);
+        acc.addMul(new Rational(2, 3), new Rational(3, 4));
+        assertEquals(new Rational(1), acc);
+        acc.subMul(new Rational(-1, 3), new Rational(3));
+        assertEquals(new Rational(2), acc);
+        acc.addMul(new Rational(-5), NEGATIVE_INFINITY);
+        assertTrue(acc.isPositiveInfinite());
+
+        // the product overflows..
+        acc.set(1);
+        acc.addMul(new Rational(Long.MAX_VALUE), new Rational(Long.MAX_VALUE));
+        assertEquals(new Rational(Long.MAX_VALUE).times(new Rational(Long.MAX_VALUE)).plus(new Rational(1)), acc);
+        acc.subMul(new Rational(Long.MAX_VALUE), new Rational(Long.MAX_VALUE));
+        assertFalse(acc.isBig());
+        assertEquals(1, acc.num);
+
+        acc.set(Long.MIN_VALUE);
+        acc.negate();
+        assertTrue(acc.isBig());
+        acc.div(-1);
+        assertEquals(new Rational(Long.MIN_VALUE), acc);
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.lra;
+
+import static it.cnr.istc.pst.semitone.sat.LBool.False;
+import static it.cnr.istc.pst.semitone.sat.LBool.Undefined;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.List;
+
+import org.junit.Test;
+
+import it.cnr.istc.pst.semitone.sat.LBool;
+import it.cnr.istc.pst.semitone.sat.Sat;
+
+/**
+ *
+ * @author Riccardo De Benedictis
+ */
+public class SMTLIB2ReaderTest {
+
+    @Test
+    public void testRead() throws IOException {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+        SMTLIB2Reader reader = new SMTLIB2Reader(sat, lra);
+
+        List<LBool> res = reader.read(new StringReader("(set-logic QF_LRA) ; a comment\n"
+                + "(set-info :status sat)\n"
+                + "(declare-fun x () Real)\n"
+                + "(declare-fun y () Real)\n"
+                + "(declare-const b Bool)\n"
+                + "(assert (and (<= x (- 4)) (>= x (- 8.0))))\n"
+                + "(assert (let ((s (+ (* (- 1) x) y))) (<= s 1)))\n"
+                + "(assert (=> b (>= y 2)))\n"
+                + "(check-sat)\n"
+                + "(push 1)\n"
+                + "(assert b)\n"
+                + "(check-sat)\n"
+                + "(pop 1)\n"
+                + "(check-sat)\n"
+                + "(exit)\n"));
+        assertEquals(3, res.size());
+        assertEquals(Undefined, res.get(0));
+        assertEquals(False, res.get(1));
+        assertEquals(Undefined, res.get(2));
+        assertTrue(sat.rootLevel());
+        assertTrue(lra.value(reader.var("x")).leq(-4));
+    }
+
+    @Test
+    public void testDistinct() throws IOException {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+        SMTLIB2Reader reader = new SMTLIB2Reader(sat, lra);
+
+        List<LBool> res = reader.read(new StringReader("(declare-const x Bool)\n"
+                + "(declare-const y Bool)\n"
+                + "(declare-fun a () Real)\n"
+                + "(declare-fun b () Real)\n"
+                + "(declare-fun c () Real)\n"
+                + "(push 1)\n"
+                + "(assert (distinct x y x))\n"
+                + "(check-sat)\n"
+                + "(pop 1)\n"
+                + "(assert (distinct a b c))\n"
+                + "(assert (= a 0))\n"
+                + "(assert (= b 1))\n"
+                + "(check-sat)\n"
+                + "(assert (= c 0))\n"
+                + "(check-sat)\n"));
+        assertEquals(3, res.size());
+        assertEquals(False, res.get(0)); // every pair of arguments must differ, including 'x' and 'x'..
+        assertEquals(Undefined, res.get(1));
+        assertEquals(False, res.get(2)); // 'a' and 'c' are not adjacent, yet they must differ..
+    }
+
+    @Test
+    public void testBigNumbers() throws IOException {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+        SMTLIB2Reader reader = new SMTLIB2Reader(sat, lra);
+
+        List<LBool> res = reader.read(new StringReader("(declare-fun x () Real)\n"
+                + "(declare-fun y () Real)\n"
+                + "(assert (>= x 123456789012345678901234567890))\n"
+                + "(assert (<= y 0.0000000000000000000001))\n"
+                + "(assert (> y 0.00000000000000000000005))\n"
+                + "(check-sat)\n"));
+        assertEquals(1, res.size());
+        assertEquals(Undefined, res.get(0));
+        assertTrue(lra.value(reader.var("x")).geq(new Rational(new BigInteger("123456789012345678901234567890"), BigInteger.ONE)));
+        assertTrue(lra.value(reader.var("y")).leq(new Rational(BigInteger.ONE, BigInteger.TEN.pow(22))));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupported() throws IOException {
+        Sat sat = new Sat();
+        LRATheory lra = new LRATheory(sat);
+        SMTLIB2Reader reader = new SMTLIB2Reader(sat, lra);
+
+        reader.read(new StringReader("(declare-fun x () Real)\n"
+                + "(declare-const b Bool)\n"
+                + "(assert (<= (ite b x 1) 2))\n"));
+    }
+}
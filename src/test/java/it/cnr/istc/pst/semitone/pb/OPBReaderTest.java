@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.pb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import it.cnr.istc.pst.semitone.lra.Rational;
+import it.cnr.istc.pst.semitone.sat.LBool;
+import it.cnr.istc.pst.semitone.sat.Lit;
+import it.cnr.istc.pst.semitone.sat.Sat;
+
+/**
+ *
+ * @author Riccardo De Benedictis
+ */
+public class OPBReaderTest {
+
+    @Test
+    public void testRead() throws IOException {
+        Sat sat = new Sat();
+        PBTheory pb = new PBTheory(sat);
+        OPBReader reader = new OPBReader(sat, pb);
+
+        boolean rd = reader.read(new StringReader("* #variable= 3 #constraint= 2\n"
+                + "min: +1 x1 +2 x2 -1 x3 ;\n"
+                + "+1 x1 +2 ~x2 +1 x1 >= 2 ;\n"
+                + "-1 x2 +1 x3 = 0;\n"
+                + "[3] +1 x3 >= 1 ;\n"));
+        assertTrue(rd);
+        assertTrue(sat.check());
+        assertEquals(1, reader.softVars().size());
+        assertEquals(3, reader.softWeights().getLong(0));
+        assertEquals(3, reader.objective().size());
+
+        // 2 x1 - 2 x2 >= 0 and x2 = x3, hence !x1 implies !x2 and !x3..
+        boolean asm = sat.assume(new Lit(reader.var(1), false)) && sat.check();
+        assertTrue(asm);
+        assertEquals(LBool.False, sat.value(reader.var(2)));
+        assertEquals(LBool.False, sat.value(reader.var(3)));
+        assertTrue(pb.lb(reader.objective()).eq(new Rational(0)));
+        assertTrue(pb.ub(reader.objective()).eq(new Rational(0)));
+        sat.pop();
+
+        // x2 implies x1 and x3..
+        asm = sat.assume(new Lit(reader.var(2))) && sat.check();
+        assertTrue(asm);
+        assertEquals(LBool.True, sat.value(reader.var(1)));
+        assertEquals(LBool.True, sat.value(reader.var(3)));
+        assertTrue(pb.lb(reader.objective()).eq(new Rational(2)));
+        assertTrue(pb.ub(reader.objective()).eq(new Rational(2)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNonLinear() throws IOException {
+        Sat sat = new Sat();
+        PBTheory pb = new PBTheory(sat);
+        OPBReader reader = new OPBReader(sat, pb);
+
+        reader.read(new StringReader("+1 x1 x2 >= 1;\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTooLarge() throws IOException {
+        Sat sat = new Sat();
+        PBTheory pb = new PBTheory(sat);
+        OPBReader reader = new OPBReader(sat, pb);
+
+        reader.read(new StringReader("+123456789012345678901234567890 x1 >= 1;\n"));
+    }
+}
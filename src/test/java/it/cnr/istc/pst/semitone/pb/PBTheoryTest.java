@@ -16,12 +16,15 @@
  */
 package it.cnr.istc.pst.semitone.pb;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
 import it.cnr.istc.pst.semitone.lra.Lin;
 import it.cnr.istc.pst.semitone.lra.Rational;
+import it.cnr.istc.pst.semitone.sat.LBool;
 import it.cnr.istc.pst.semitone.sat.Lit;
 import it.cnr.istc.pst.semitone.sat.Sat;
 
@@ -95,4 +98,99 @@ public class PBTheoryTest {
         sat.pop();
         sat.pop();
     }
+
+    @Test
+    public void testPropagation() {
+        Sat sat = new Sat();
+        PBTheory pb = new PBTheory(sat);
+
+        int a = sat.newVar();
+        int b = sat.newVar();
+        int c = sat.newVar();
+
+        // a + b + c >= 2
+        boolean nc = sat.newClause(new Lit(pb.newGEq(new Lin(a).plus(new Lin(b)).plus(new Lin(c)), new Lin(new Rational(2))))) && sat.check();
+        assertTrue(nc);
+
+        // a, which satisfies nothing yet..
+        boolean ch = sat.assume(new Lit(a)) && sat.check();
+        assertTrue(ch);
+        assertEquals(LBool.Undefined, sat.value(b));
+        assertEquals(LBool.Undefined, sat.value(c));
+        sat.pop();
+
+        // !a, which forces both b and c..
+        ch = sat.assume(new Lit(a, false)) && sat.check();
+        assertTrue(ch);
+        assertEquals(LBool.True, sat.value(b));
+        assertEquals(LBool.True, sat.value(c));
+        sat.pop();
+        assertEquals(LBool.Undefined, sat.value(b));
+
+        // a + b <= 1
+        nc = sat.newClause(new Lit(pb.newLEq(new Lin(a).plus(new Lin(b)), new Lin(new Rational(1))))) && sat.check();
+        assertTrue(nc);
+        ch = sat.assume(new Lit(a)) && sat.check();
+        assertTrue(ch);
+        assertEquals(LBool.False, sat.value(b));
+        assertEquals(LBool.True, sat.value(c));
+        sat.pop();
+    }
+
+    @Test
+    public void testReification() {
+        Sat sat = new Sat();
+        PBTheory pb = new PBTheory(sat);
+
+        int a = sat.newVar();
+        int b = sat.newVar();
+        int ctr = pb.newGEq(new Lin(a, new Rational(2)).plus(new Lin(b, new Rational(3))), new Lin(new Rational(3)));
+
+        // the constraint becomes satisfied..
+        boolean ch = sat.assume(new Lit(b)) && sat.check();
+        assertTrue(ch);
+        assertEquals(LBool.True, sat.value(ctr));
+        sat.pop();
+
+        // the constraint becomes unsatisfable..
+        ch = sat.assume(new Lit(b, false)) && sat.check();
+        assertTrue(ch);
+        assertEquals(LBool.False, sat.value(ctr));
+        sat.pop();
+
+        // the negated constraint forbids b..
+        ch = sat.assume(new Lit(ctr, false)) && sat.check();
+        assertTrue(ch);
+        assertEquals(LBool.False, sat.value(b));
+        assertEquals(LBool.Undefined, sat.value(a));
+        sat.pop();
+    }
+
+    @Test
+    public void testConflict() {
+        Sat sat = new Sat();
+        PBTheory pb = new PBTheory(sat);
+
+        int a = sat.newVar();
+        int b = sat.newVar();
+        int c = sat.newVar();
+        int ab_geq_2 = pb.newGEq(new Lin(a).plus(new Lin(b)), new Lin(new Rational(2)));
+
+        // !a at the first level, then a + b >= 2 at the second one..
+        boolean ch = sat.assume(new Lit(a, false)) && sat.check();
+        assertTrue(ch);
+        assertEquals(LBool.False, sat.value(ab_geq_2));
+        ch = sat.assume(new Lit(c)) && sat.check();
+        assertTrue(ch);
+        assertEquals(2, sat.decisionLevel());
+        sat.pop();
+        sat.pop();
+
+        // a + b >= 2 at the first level, then !a is inconsistent..
+        ch = sat.assume(new Lit(ab_geq_2)) && sat.check();
+        assertTrue(ch);
+        assertEquals(LBool.True, sat.value(a));
+        assertEquals(LBool.True, sat.value(b));
+        assertFalse(sat.assume(new Lit(a, false)));
+    }
 }
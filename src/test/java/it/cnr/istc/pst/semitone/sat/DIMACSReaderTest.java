@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.sat;
+
+import static it.cnr.istc.pst.semitone.sat.LBool.False;
+import static it.cnr.istc.pst.semitone.sat.LBool.True;
+import static it.cnr.istc.pst.semitone.sat.LBool.Undefined;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Riccardo De Benedictis
+ */
+public class DIMACSReaderTest {
+
+    @Test
+    public void testRead() throws IOException {
+        Path path = Files.createTempFile("semitone", ".cnf");
+        Files.write(path, ("c a simple problem\n" + "p cnf 20 5\n" + "1 -2 0\n" + "-1 0\n" + "2 3\n" + " 0\n"
+                + "-3 3 0\n" + "20 20 -19 0\n").getBytes(StandardCharsets.US_ASCII));
+        try {
+            Sat sat = new Sat();
+            DIMACSReader reader = new DIMACSReader(sat);
+            assertTrue(reader.read(path));
+            assertEquals(20, reader.nVars());
+            assertTrue(sat.check());
+            assertEquals(False, sat.value(reader.var(1)));
+            assertEquals(Undefined, sat.value(reader.var(19)));
+            assertEquals(False, sat.value(reader.var(2)));
+            assertEquals(True, sat.value(reader.var(3)));
+
+            boolean asm = sat.assume(new Lit(reader.var(19))) && sat.check();
+            assertTrue(asm);
+            assertEquals(True, sat.value(reader.var(20)));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void testInconsistent() throws IOException {
+        Path path = Files.createTempFile("semitone", ".cnf");
+        Files.write(path, "p cnf 1 2\n1 0\n-1 0\n".getBytes(StandardCharsets.US_ASCII));
+        try {
+            Sat sat = new Sat();
+            assertFalse(new DIMACSReader(sat).read(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
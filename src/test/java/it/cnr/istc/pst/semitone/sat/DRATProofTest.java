@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 Riccardo De Benedictis
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package it.cnr.istc.pst.semitone.sat;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+/**
+ *
+ * @author Riccardo De Benedictis
+ */
+public class DRATProofTest {
+
+    @Test
+    public void testProof() throws IOException {
+        ByteArrayOutputStream proof_out = new ByteArrayOutputStream();
+        ByteArrayOutputStream lemmas_out = new ByteArrayOutputStream();
+        Sat sat = new Sat();
+        DRATProof proof = new DRATProof(Channels.newChannel(proof_out), Channels.newChannel(lemmas_out), 16);
+        sat.setProof(proof);
+
+        int a = sat.newVar();
+        int b = sat.newVar();
+        int c = sat.newVar();
+        assertTrue(sat.newClause(new Lit(a), new Lit(b)));
+        assertTrue(sat.newClause(new Lit(a), new Lit(b, false)));
+        assertTrue(sat.newClause(new Lit(a, false), new Lit(b)));
+        assertTrue(sat.newClause(new Lit(a, false), new Lit(b, false)));
+
+        assertTrue(sat.assume(new Lit(a)));
+        sat.record(new Lit(c), new Lit(a, false));
+        assertFalse(sat.check());
+        proof.close();
+
+        // the learned clause (¬a) and the empty clause..
+        assertArrayEquals(new byte[] { 'a', 3, 0, 'a', 0 }, proof_out.toByteArray());
+        assertArrayEquals("3 -1 0\n".getBytes(), lemmas_out.toByteArray());
+    }
+}
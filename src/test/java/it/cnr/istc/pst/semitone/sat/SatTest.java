@@ -24,8 +24,19 @@ import static it.cnr.istc.pst.semitone.sat.Sat.TRUE_var;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.junit.Test;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
 /**
  *
  * @author Riccardo De Benedictis
@@ -98,4 +109,173 @@ public class SatTest {
         asm = sat.assume(new Lit(b0, false)) && sat.check();
         assertTrue(asm);
     }
+
+    @Test
+    public void testStatistics() throws IOException {
+        Path jfr = Files.createTempFile("semitone", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("semitone.Check");
+            recording.enable("semitone.Analyze");
+            recording.start();
+
+            Sat sat = new Sat();
+
+            int b0 = sat.newVar();
+            int b1 = sat.newVar();
+            int b2 = sat.newVar();
+
+            boolean nc = sat.newClause(new Lit(b0, false), new Lit(b1));
+            assertTrue(nc);
+            nc = sat.newClause(new Lit(b0, false), new Lit(b2));
+            assertTrue(nc);
+            nc = sat.newClause(new Lit(b1, false), new Lit(b2, false));
+            assertTrue(nc);
+
+            boolean asm = sat.assume(new Lit(b0)) && sat.check();
+            assertTrue(asm); // the conflict is analyzed and b0 is learned to be false..
+            assertEquals(False, sat.value(b0));
+
+            assertEquals(1, sat.decisions());
+            assertEquals(1, sat.conflicts());
+            assertEquals(1, sat.learned());
+            assertEquals(1, sat.learnedLits());
+            assertTrue(sat.propagations() >= 3);
+            assertEquals(0, sat.theoryPropagations());
+
+            recording.stop();
+            recording.dump(jfr);
+            List<String> events = RecordingFile.readAllEvents(jfr).stream()
+                    .map(e -> e.getEventType().getName()).collect(Collectors.toList());
+            assertTrue(events.contains("semitone.Check"));
+            assertTrue(events.contains("semitone.Analyze"));
+        } finally {
+            Files.delete(jfr);
+        }
+    }
+
+    @Test
+    public void testAssignmentListener() {
+        Sat sat = new Sat();
+
+        int b0 = sat.newVar();
+        int b1 = sat.newVar();
+        int b2 = sat.newVar();
+        int b3 = sat.newVar();
+
+        // we mirror the assignments of the network..
+        LBool[] vals = new LBool[6];
+        Arrays.fill(vals, Undefined);
+        // constant variables are not notified..
+        vals[FALSE_var] = False;
+        vals[TRUE_var] = True;
+        int[] last_level = new int[] { -1 };
+        sat.addListener(new AssignmentListener() {
+
+            @Override
+            public void assigned(int[] trail, int from, int to) {
+                for (int i = from; i < to; i++) {
+                    assertEquals(Undefined, vals[Sat.variable(trail[i])]);
+                    vals[Sat.variable(trail[i])] = Sat.sign(trail[i]) ? True : False;
+                }
+            }
+
+            @Override
+            public void backtracked(int level, int[] trail, int from, int to) {
+                last_level[0] = level;
+                for (int i = from; i < to; i++) {
+                    assertTrue(vals[Sat.variable(trail[i])] != Undefined);
+                    vals[Sat.variable(trail[i])] = Undefined;
+                }
+            }
+        });
+
+        boolean nc = sat.newClause(new Lit(b0, false), new Lit(b1));
+        assertTrue(nc);
+        nc = sat.newClause(new Lit(b2, false), new Lit(b1, false), new Lit(b3));
+        assertTrue(nc);
+        nc = sat.newClause(new Lit(b2, false), new Lit(b1, false), new Lit(b3, false));
+        assertTrue(nc);
+
+        boolean asm = sat.assume(new Lit(b0)) && sat.check();
+        assertTrue(asm);
+        for (int v = 0; v < vals.length; v++) {
+            assertEquals(sat.value(v), vals[v]);
+        }
+
+        // the conflict makes the network backjump, learning that b2 must be false..
+        asm = sat.assume(new Lit(b2)) && sat.check();
+        assertTrue(asm);
+        assertEquals(False, sat.value(b2));
+        for (int v = 0; v < vals.length; v++) {
+            assertEquals(sat.value(v), vals[v]);
+        }
+
+        sat.pop();
+        assertEquals(0, last_level[0]);
+        for (int v = 0; v < vals.length; v++) {
+            assertEquals(sat.value(v), vals[v]);
+        }
+    }
+
+    @Test
+    public void testBackjumpNotification() {
+        Sat sat = new Sat();
+        int b0 = sat.newVar();
+        int b1 = sat.newVar();
+
+        boolean nc = sat.newClause(new Lit(b0, false), new Lit(b1));
+        assertTrue(nc);
+
+        // a theory which, once made inconsistent, rules out b0 and b1..
+        boolean[] inconsistent = new boolean[] { false };
+        sat.addTheory(new Theory() {
+
+            @Override
+            public boolean propagate(Lit p, List<Lit> cnfl) {
+                return true;
+            }
+
+            @Override
+            public boolean check(List<Lit> cnfl) {
+                if (inconsistent[0] && sat.value(b0) == True) {
+                    cnfl.add(new Lit(b0, false));
+                    cnfl.add(new Lit(b1, false));
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public void push() {
+            }
+
+            @Override
+            public void pop() {
+            }
+        });
+
+        List<Integer> levels = new ArrayList<>();
+        sat.addListener(new AssignmentListener() {
+
+            @Override
+            public void assigned(int[] trail, int from, int to) {
+            }
+
+            @Override
+            public void backtracked(int level, int[] trail, int from, int to) {
+                assertEquals(sat.decisionLevel(), level);
+                levels.add(level);
+            }
+        });
+
+        boolean asm = sat.assume(new Lit(b0)) && sat.check();
+        assertTrue(asm);
+
+        // the conflict involves already notified literals, which are notified once the network has backjumped..
+        inconsistent[0] = true;
+        asm = sat.check();
+        assertTrue(asm);
+        assertEquals(False, sat.value(b0));
+        assertEquals(Arrays.asList(0), levels);
+    }
 }